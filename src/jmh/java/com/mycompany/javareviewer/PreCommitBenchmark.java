@@ -0,0 +1,198 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Times the pre-commit check on a generated repository of FILE_COUNT classes
+ * with CHANGED_FILES of them staged. hook runs the pre-commit hook written by
+ * --install-hook and times it from start to exit, JVM start-up included,
+ * which is what a commit waits for; installing it records the class data
+ * archive and starts the PreCommitDaemon that the hook hands the check to.
+ * warm is the check alone after JIT warm-up. Needs the -hook jar, which the
+ * package phase builds.
+ *
+ * Running this class's main holds the hook time to its budget:
+ * mvn -B -Pbenchmark verify -Djmh.main=com.mycompany.javareviewer.PreCommitBenchmark
+ *
+ * @author Andy
+ */
+@State(Scope.Benchmark)
+public class PreCommitBenchmark {
+    static final int FILE_COUNT = 5000;
+    static final int CHANGED_FILES = 20;
+    static final File REPOSITORY = new File("target/precommit-benchmark").getAbsoluteFile();
+    private File hook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        File marker = new File(REPOSITORY, ".git/benchmark-generated");
+        if (!marker.exists()) {
+            generate();
+            Files.write(marker.toPath(), new byte[0]);
+        }
+
+        // Same edit every time, so each fork sees the same staged diff
+        for (int i = 0; i < CHANGED_FILES; i++) {
+            write(sourceFile(i), source(i, true));
+        }
+        git("add", "-A");
+        hook = installHook();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // Stops the daemon the hook started
+        Files.deleteIfExists(new File(REPOSITORY, ".git/" + PreCommitDaemon.PORT_FILE_NAME).toPath());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 10)
+    @Fork(1)
+    public int hook() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(hook.getPath()).directory(REPOSITORY)
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        return process.waitFor();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public List<Finding> warm() throws IOException {
+        return PreCommitCheck.check(REPOSITORY);
+    }
+
+    private static File installHook() throws IOException, InterruptedException {
+        File[] jars = new File("target").listFiles((directory, name) -> name.endsWith("-hook.jar"));
+        if (jars == null || jars.length == 0) {
+            throw new IOException("No -hook jar in target, run the package phase first");
+        }
+
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        Process process = new ProcessBuilder(java, "-jar", jars[0].getAbsolutePath(), "--install-hook", REPOSITORY.getPath())
+                .inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IOException("--install-hook failed");
+        }
+        return new File(REPOSITORY, ".git/hooks/pre-commit");
+    }
+
+    private static void generate() throws IOException, InterruptedException {
+        REPOSITORY.mkdirs();
+        git("init", "-q");
+        for (int i = 0; i < FILE_COUNT; i++) {
+            write(sourceFile(i), source(i, false));
+        }
+        git("add", "-A");
+        git("-c", "user.name=benchmark", "-c", "user.email=benchmark@localhost", "commit", "-q", "-m", "Generated");
+    }
+
+    private static File sourceFile(int index) {
+        return new File(REPOSITORY, "src/main/java/bench/p" + index % 50 + "/Class" + index + ".java");
+    }
+
+    /**
+     * About a hundred lines with a few findings per method. The changed
+     * version inserts one method in the middle of the class.
+     */
+    private static String source(int index, boolean changed) {
+        StringBuilder source = new StringBuilder();
+        source.append("package bench.p").append(index % 50).append(";\n\n");
+        source.append("import java.util.ArrayList;\nimport java.util.List;\n\n");
+        source.append("public class Class").append(index).append(" {\n");
+        source.append("    private final List<String> names = new ArrayList<>();\n");
+        source.append("    private int count;\n\n");
+        for (int m = 0; m < 10; m++) {
+            if (changed && m == 5) {
+                source.append("    public String staged(int value) {\n");
+                source.append("        if (value > count) {\n");
+                source.append("            return names.get(0).trim().toLowerCase();\n");
+                source.append("        } else {\n");
+                source.append("            return \"staged\" + value;\n");
+                source.append("        }\n");
+                source.append("    }\n\n");
+            }
+            source.append("    public String method").append(m).append("(int value) {\n");
+            source.append("        count += value;\n");
+            source.append("        if (count > ").append(m).append(") {\n");
+            source.append("            names.add(\"value ").append(m).append("\");\n");
+            source.append("        } else {\n");
+            source.append("            names.add(String.valueOf(value).trim());\n");
+            source.append("        }\n");
+            source.append("        return names.toString();\n");
+            source.append("    }\n\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static void write(File file, String text) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void git(String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        Process process = new ProcessBuilder(command).directory(REPOSITORY).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IOException("git " + String.join(" ", args) + " failed");
+        }
+    }
+
+    /**
+     * Runs both benchmarks and exits with 1 when the hook takes longer than
+     * PreCommitCheck.DEFAULT_BUDGET_MILLIS.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(PreCommitBenchmark.class.getName() + "\\.").build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        for (RunResult result : results) {
+            if (!result.getParams().getBenchmark().endsWith(".hook")) {
+                continue;
+            }
+            double millis = result.getPrimaryResult().getScore();
+            if (millis > PreCommitCheck.DEFAULT_BUDGET_MILLIS) {
+                System.out.println("BUDGET NOT MET: pre-commit hook took " + Math.round(millis) + " ms, budget is "
+                        + PreCommitCheck.DEFAULT_BUDGET_MILLIS + " ms");
+                System.exit(1);
+            }
+            System.out.println("BUDGET MET: pre-commit hook took " + Math.round(millis) + " ms, budget is "
+                    + PreCommitCheck.DEFAULT_BUDGET_MILLIS + " ms");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Allocation of the four type-classifying visitors over one already parsed
+ * file of METHOD_COUNT methods. Each benchmark is one pass over the whole
+ * CompilationUnit into a reused list; traversal is the same walk with an
+ * empty visitor, so a visitor's gc.alloc.rate.norm minus traversal's is
+ * what the visitor itself allocates, which should be just its findings.
+ * var is left out of the source because only var is sent to the solver.
+ *
+ * Running this class's main adds the GC profiler and prints that
+ * difference for each visitor:
+ * mvn -B -Pbenchmark verify -Djmh.main=com.mycompany.javareviewer.VisitorAllocationBenchmark
+ *
+ * @author Andy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisitorAllocationBenchmark {
+    static final int METHOD_COUNT = 200;
+
+    private CompilationUnit cu;
+    private final List<Object> visited = new ArrayList<>();
+    private final List<JavaReviewer.NumericVariable> numericVariables = new ArrayList<>();
+    private final List<JavaReviewer.BooleanVariable> booleanVariables = new ArrayList<>();
+    private final List<JavaReviewer.BooleanMethod> booleanMethods = new ArrayList<>();
+    private final List<JavaReviewer.NonVoidMethod> nonVoidMethods = new ArrayList<>();
+    private final VoidVisitorAdapter<List<Object>> emptyVisitor = new VoidVisitorAdapter<List<Object>>() {
+    };
+    private final JavaReviewer.NumericVariableVisitor numericVariableVisitor = new JavaReviewer.NumericVariableVisitor();
+    private final JavaReviewer.BooleanVariableVisitor booleanVariableVisitor = new JavaReviewer.BooleanVariableVisitor();
+    private final JavaReviewer.BooleanMethodVisitor booleanMethodVisitor = new JavaReviewer.BooleanMethodVisitor();
+    private final JavaReviewer.NonVoidMethodVisitor nonVoidMethodVisitor = new JavaReviewer.NonVoidMethodVisitor();
+
+    @Setup
+    public void setUp() {
+        cu = SourceFile.fromText("Generated.java", source()).getCompilationUnit();
+    }
+
+    /**
+     * Declarations of every kind the visitors tell apart: primitives, boxed
+     * and qualified java.lang types, String, char, generics and arrays.
+     */
+    private static String source() {
+        StringBuilder source = new StringBuilder("import java.util.List;\n\npublic class Generated {\n");
+        for (int i = 0; i < METHOD_COUNT; i++) {
+            switch (i % 4) {
+                case 0:
+                    source.append("    boolean check").append(i).append("(int limit) {\n");
+                    source.append("        boolean done = limit > ").append(i).append(";\n");
+                    source.append("        java.lang.Boolean boxed = done;\n");
+                    source.append("        return done;\n    }\n");
+                    break;
+                case 1:
+                    source.append("    long count").append(i).append("(List<String> names) {\n");
+                    source.append("        int size = names.size();\n");
+                    source.append("        Integer boxed = size;\n");
+                    source.append("        double[] weights = new double[size];\n");
+                    source.append("        return size + weights.length;\n    }\n");
+                    break;
+                case 2:
+                    source.append("    String name").append(i).append("(char initial) {\n");
+                    source.append("        String name = \"n\" + initial;\n");
+                    source.append("        char last = name.charAt(0);\n");
+                    source.append("        return name + last;\n    }\n");
+                    break;
+                default:
+                    source.append("    void run").append(i).append("() {\n");
+                    source.append("        List<Integer> values = null;\n");
+                    source.append("        Object value = values;\n    }\n");
+                    break;
+            }
+        }
+        return source.append("}\n").toString();
+    }
+
+    @Benchmark
+    public List<Object> traversal() {
+        visited.clear();
+        emptyVisitor.visit(cu, visited);
+        return visited;
+    }
+
+    @Benchmark
+    public List<JavaReviewer.NumericVariable> numericVariableVisitor() {
+        numericVariables.clear();
+        numericVariableVisitor.visit(cu, numericVariables);
+        return numericVariables;
+    }
+
+    @Benchmark
+    public List<JavaReviewer.BooleanVariable> booleanVariableVisitor() {
+        booleanVariables.clear();
+        booleanVariableVisitor.visit(cu, booleanVariables);
+        return booleanVariables;
+    }
+
+    @Benchmark
+    public List<JavaReviewer.BooleanMethod> booleanMethodVisitor() {
+        booleanMethods.clear();
+        booleanMethodVisitor.visit(cu, booleanMethods);
+        return booleanMethods;
+    }
+
+    @Benchmark
+    public List<JavaReviewer.NonVoidMethod> nonVoidMethodVisitor() {
+        nonVoidMethods.clear();
+        nonVoidMethodVisitor.visit(cu, nonVoidMethods);
+        return nonVoidMethods;
+    }
+
+    /**
+     * Runs every visitor with the GC profiler and prints bytes per pass
+     * above the empty traversal, next to the number of findings per pass.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(VisitorAllocationBenchmark.class.getName() + "\\.").addProfiler(GCProfiler.class).build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        VisitorAllocationBenchmark counts = new VisitorAllocationBenchmark();
+        counts.setUp();
+        double traversal = 0;
+        for (RunResult result : results) {
+            if (result.getParams().getBenchmark().endsWith(".traversal")) {
+                traversal = allocated(result);
+            }
+        }
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String visitor = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            int findings;
+            switch (visitor) {
+                case "numericVariableVisitor":
+                    findings = counts.numericVariableVisitor().size();
+                    break;
+                case "booleanVariableVisitor":
+                    findings = counts.booleanVariableVisitor().size();
+                    break;
+                case "booleanMethodVisitor":
+                    findings = counts.booleanMethodVisitor().size();
+                    break;
+                case "nonVoidMethodVisitor":
+                    findings = counts.nonVoidMethodVisitor().size();
+                    break;
+                default:
+                    continue;
+            }
+            System.out.println("ALLOCATION: " + visitor + ", " + Math.round(allocated(result) - traversal) + " B/pass above traversal, "
+                    + findings + " findings/pass");
+        }
+    }
+
+    private static double allocated(RunResult result) {
+        Result norm = result.getSecondaryResults().get("gc.alloc.rate.norm");
+        return norm == null ? Double.NaN : norm.getScore();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A set of finding fingerprints stored as a sorted array of longs. The file
+ * is a small header followed by the fingerprints, eight bytes each, so a
+ * baseline of a million findings is 8 MB and loads with a single read. After
+ * the fingerprints comes a side table with the rule, file, class and method
+ * of each one, in the same order, which is only decoded to describe a
+ * resolved finding.
+ *
+ * @author Andy
+ */
+public class Baseline {
+    private static final int MAGIC = 0x4a52424c; // "JRBL"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    private final long[] fingerprints;
+    // One line per fingerprint: rule, file, class and method separated by tabs
+    private final byte[] details;
+    private String[] detailLines;
+
+    private Baseline(long[] fingerprints, byte[] details) {
+        this.fingerprints = fingerprints;
+        this.details = details;
+    }
+
+    public static Baseline of(List<Finding> findings) {
+        List<Finding> sorted = new ArrayList<>(findings);
+        sorted.sort(Comparator.comparingLong(Finding::getFingerprint));
+
+        long[] fingerprints = new long[sorted.size()];
+        StringBuilder details = new StringBuilder();
+        int size = 0;
+        for (Finding finding : sorted) {
+            if (size > 0 && fingerprints[size - 1] == finding.getFingerprint()) {
+                continue;
+            }
+            fingerprints[size++] = finding.getFingerprint();
+            details.append(finding.getRule()).append('\t').append(finding.getFile()).append('\t')
+                    .append(finding.getClassName()).append('\t').append(finding.getMethodName()).append('\n');
+        }
+        return new Baseline(Arrays.copyOf(fingerprints, size), details.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Baseline load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a baseline file: " + path);
+            }
+
+            int count = header.getInt();
+            int detailSize = header.getInt();
+            ByteBuffer body = ByteBuffer.allocateDirect(count * Long.BYTES);
+            readFully(channel, body);
+            body.flip();
+
+            long[] fingerprints = new long[count];
+            body.asLongBuffer().get(fingerprints);
+
+            byte[] details = new byte[detailSize];
+            readFully(channel, ByteBuffer.wrap(details));
+            return new Baseline(fingerprints, details);
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + fingerprints.length * Long.BYTES + details.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(fingerprints.length).putInt(details.length);
+        buffer.asLongBuffer().put(fingerprints);
+        buffer.position(HEADER_SIZE + fingerprints.length * Long.BYTES);
+        buffer.put(details);
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public boolean contains(long fingerprint) {
+        return Arrays.binarySearch(fingerprints, fingerprint) >= 0;
+    }
+
+    public int size() {
+        return fingerprints.length;
+    }
+
+    /**
+     * A baseline finding that no longer occurs. Lines and snippets are not
+     * stored, so it is described by where it was rather than what it said.
+     */
+    public static class Resolved {
+        public final long fingerprint;
+        public final String rule;
+        public final String file;
+        public final String className;
+        public final String methodName;
+
+        public Resolved(long fingerprint, String rule, String file, String className, String methodName) {
+            this.fingerprint = fingerprint;
+            this.rule = rule;
+            this.file = file;
+            this.className = className;
+            this.methodName = methodName;
+        }
+
+        @Override
+        public String toString() {
+            return rule + ": " + file + " " + className + (methodName.isEmpty() ? "" : "." + methodName) + ", " + Long.toHexString(fingerprint);
+        }
+    }
+
+    public static class Difference {
+        public final List<Finding> added = new ArrayList<>();
+        public final List<Resolved> resolved = new ArrayList<>();
+    }
+
+    /**
+     * Compares the findings of the current run against the baseline. Both
+     * sides are walked once in fingerprint order, so the cost is linear in
+     * the size of the baseline plus the number of findings.
+     */
+    public Difference compare(List<Finding> findings) {
+        List<Finding> sorted = new ArrayList<>(findings);
+        sorted.sort(Comparator.comparingLong(Finding::getFingerprint));
+
+        Difference difference = new Difference();
+        int i = 0;
+        int j = 0;
+        while (i < sorted.size() || j < fingerprints.length) {
+            if (j == fingerprints.length) {
+                difference.added.add(sorted.get(i++));
+                continue;
+            }
+            if (i == sorted.size()) {
+                difference.resolved.add(resolved(j++));
+                continue;
+            }
+
+            long current = sorted.get(i).getFingerprint();
+            if (current == fingerprints[j]) {
+                i++;
+                j++;
+            } else if (current < fingerprints[j]) {
+                difference.added.add(sorted.get(i++));
+            } else {
+                difference.resolved.add(resolved(j++));
+            }
+        }
+
+        difference.added.sort(Comparator.comparing(Finding::getFile).thenComparingInt(Finding::getStartLine));
+        return difference;
+    }
+
+    private Resolved resolved(int index) {
+        if (detailLines == null) {
+            detailLines = new String(details, StandardCharsets.UTF_8).split("\n", -1);
+        }
+        String[] fields = index < detailLines.length ? detailLines[index].split("\t", -1) : new String[0];
+        return new Resolved(fingerprints[index], field(fields, 0), field(fields, 1), field(fields, 2), field(fields, 3));
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index] : "";
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Baseline file is truncated");
+            }
+        }
+    }
+}
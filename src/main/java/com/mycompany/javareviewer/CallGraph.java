@@ -0,0 +1,403 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.mycompany.javareviewer.JavaReviewer.MethodCall;
+import com.mycompany.javareviewer.JavaReviewer.MethodInfo;
+import com.mycompany.javareviewer.JavaReviewer.PrivateMethod;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Repository-wide call graph. Every method declaration found by findMethods
+ * is a node with an int id, and every call or method reference found by
+ * findMethodCalls is an edge from the declaration it is credited to, to the
+ * declarations with the called name. Calls made from constructors,
+ * initializer blocks and field initializers get a node of their own, named
+ * Class.<init> or Class.<clinit>, that nothing calls.
+ * Edges are stored in compressed sparse row form, once by caller and once by
+ * callee, so fan-in, fan-out and caller walks are array lookups.
+ *
+ * Calls are matched by name and argument count, allowing for varargs;
+ * method references match any arity. When the caller's own class declares a
+ * matching method only those are linked, otherwise every matching
+ * declaration is.
+ *
+ * @author Andy
+ */
+public class CallGraph {
+    private static final int MAGIC = 0x4a524347; // "JRCG"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 5;
+
+    private final String[] names;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer reverseOffsets;
+    private final IntBuffer reverseTargets;
+    private final BitSet privateMethods;
+    private Map<String, int[]> idsByName;
+
+    private CallGraph(String[] names, IntBuffer offsets, IntBuffer targets, IntBuffer reverseOffsets, IntBuffer reverseTargets, BitSet privateMethods) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.reverseOffsets = reverseOffsets;
+        this.reverseTargets = reverseTargets;
+        this.privateMethods = privateMethods;
+    }
+
+    private static class FileMethods {
+        List<MethodInfo> methods = new ArrayList<>();
+        List<MethodCall> calls = new ArrayList<>();
+        List<PrivateMethod> privateMethods = new ArrayList<>();
+    }
+
+    private static FileMethods extract(String path) {
+        FileMethods fileMethods = new FileMethods();
+        // The three detectors share one parse of the file
+        try (SourceFile.Session session = SourceFile.openSession()) {
+            fileMethods.methods = JavaReviewer.findMethods(path);
+            fileMethods.calls = JavaReviewer.findMethodCalls(path);
+            fileMethods.privateMethods = JavaReviewer.getPrivateMethods(path);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return fileMethods;
+    }
+
+    public static CallGraph build(List<String> javaFiles) {
+        // Parsing dominates, so files are extracted in parallel and only the
+        // cheap id assignment and edge packing below run on one thread
+        List<FileMethods> extracted = javaFiles.parallelStream().map(CallGraph::extract).collect(Collectors.toList());
+
+        List<String> names = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+        BitSet privateMethods = new BitSet();
+        Map<String, List<Integer>> candidatesByName = new HashMap<>();
+        // The declaration behind each id from findMethods, for arity checks
+        List<MethodInfo> declarations = new ArrayList<>();
+        // Node ids of each file by begin position, since several methods
+        // can be declared on one line
+        List<Map<Long, Integer>> idsByPosition = new ArrayList<>();
+
+        for (FileMethods fileMethods : extracted) {
+            Map<Long, Integer> ids = new HashMap<>();
+            for (MethodInfo method : fileMethods.methods) {
+                int id = names.size();
+                names.add(method.getClassName() + "." + method.getMethodName());
+                classNames.add(method.getClassName());
+                declarations.add(method);
+                candidatesByName.computeIfAbsent(method.getMethodName(), k -> new ArrayList<>()).add(id);
+                ids.put(position(method.getLineNumber(), method.getColumnNumber()), id);
+            }
+            for (PrivateMethod privateMethod : fileMethods.privateMethods) {
+                Integer id = ids.get(position(privateMethod.lineNumber, privateMethod.columnNumber));
+                if (id != null) {
+                    privateMethods.set(id);
+                }
+            }
+            idsByPosition.add(ids);
+        }
+
+        EdgeList edges = new EdgeList();
+        for (int f = 0; f < extracted.size(); f++) {
+            Map<Long, Integer> ids = idsByPosition.get(f);
+            for (MethodCall call : extracted.get(f).calls) {
+                if (call.callerLine < 0) {
+                    continue;
+                }
+                long position = position(call.callerLine, call.callerColumn);
+                Integer caller = ids.get(position);
+                if (caller == null) {
+                    // A constructor, initializer block or field
+                    caller = names.size();
+                    names.add(call.callerName);
+                    classNames.add(call.callerName.substring(0, call.callerName.lastIndexOf('.')));
+                    ids.put(position, caller);
+                }
+                List<Integer> candidates = candidatesByName.get(call.name);
+                if (candidates == null) {
+                    continue;
+                }
+
+                boolean sameClass = false;
+                for (int candidate : candidates) {
+                    if (declarations.get(candidate).accepts(call.arguments) && classNames.get(candidate).equals(classNames.get(caller))) {
+                        edges.add(caller, candidate);
+                        sameClass = true;
+                    }
+                }
+                if (!sameClass) {
+                    for (int candidate : candidates) {
+                        if (declarations.get(candidate).accepts(call.arguments)) {
+                            edges.add(caller, candidate);
+                        }
+                    }
+                }
+            }
+        }
+
+        int nodeCount = names.size();
+        long[] forward = edges.toSortedUnique(false);
+        long[] reverse = edges.toSortedUnique(true);
+        return new CallGraph(names.toArray(new String[0]),
+                IntBuffer.wrap(rowOffsets(forward, nodeCount)), IntBuffer.wrap(columns(forward)),
+                IntBuffer.wrap(rowOffsets(reverse, nodeCount)), IntBuffer.wrap(columns(reverse)),
+                privateMethods);
+    }
+
+    private static long position(int line, int column) {
+        return ((long) line << 32) | (column & 0xffffffffL);
+    }
+
+    /**
+     * Edges packed as (row << 32 | column) so that sorting the longs groups
+     * them by row, which is exactly the order CSR needs.
+     */
+    private static class EdgeList {
+        private long[] edges = new long[1024];
+        private int size;
+
+        void add(int from, int to) {
+            if (size == edges.length) {
+                edges = Arrays.copyOf(edges, size * 2);
+            }
+            edges[size++] = ((long) from << 32) | (to & 0xffffffffL);
+        }
+
+        long[] toSortedUnique(boolean reversed) {
+            long[] packed = Arrays.copyOf(edges, size);
+            if (reversed) {
+                for (int i = 0; i < packed.length; i++) {
+                    packed[i] = (packed[i] << 32) | (packed[i] >>> 32);
+                }
+            }
+            Arrays.parallelSort(packed);
+
+            int unique = 0;
+            for (int i = 0; i < packed.length; i++) {
+                if (unique == 0 || packed[unique - 1] != packed[i]) {
+                    packed[unique++] = packed[i];
+                }
+            }
+            return Arrays.copyOf(packed, unique);
+        }
+    }
+
+    private static int[] rowOffsets(long[] packed, int nodeCount) {
+        int[] offsets = new int[nodeCount + 1];
+        for (long edge : packed) {
+            offsets[(int) (edge >>> 32) + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return offsets;
+    }
+
+    private static int[] columns(long[] packed) {
+        int[] columns = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            columns[i] = (int) packed[i];
+        }
+        return columns;
+    }
+
+    /**
+     * Writes the graph through a memory-mapped region. Layout: a header of
+     * five ints (magic, version, nodes, edges, name bytes), the forward and
+     * reverse CSR arrays, the private-method bit words and finally the node
+     * names as newline-separated UTF-8.
+     */
+    public void save(Path path) throws IOException {
+        int nodeCount = getNodeCount();
+        int edgeCount = getEdgeCount();
+        byte[] nameBytes = String.join("\n", names).getBytes(StandardCharsets.UTF_8);
+        long[] privateWords = privateMethods.toLongArray();
+        int bitWords = bitWordCount(nodeCount);
+
+        long size = 4L * (HEADER_INTS + 2L * (nodeCount + 1) + 2L * edgeCount) + 8L * bitWords + nameBytes.length;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(edgeCount).putInt(nameBytes.length);
+            putInts(buffer, offsets, nodeCount + 1);
+            putInts(buffer, targets, edgeCount);
+            putInts(buffer, reverseOffsets, nodeCount + 1);
+            putInts(buffer, reverseTargets, edgeCount);
+            for (int i = 0; i < bitWords; i++) {
+                buffer.putLong(i < privateWords.length ? privateWords[i] : 0L);
+            }
+            buffer.put(nameBytes);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Maps a saved graph. The CSR arrays are read straight from the mapping;
+     * only the names are copied onto the heap.
+     */
+    public static CallGraph load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a call graph file: " + path);
+            }
+            int nodeCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            int nameLength = buffer.getInt();
+
+            IntBuffer offsets = slice(buffer, nodeCount + 1);
+            IntBuffer targets = slice(buffer, edgeCount);
+            IntBuffer reverseOffsets = slice(buffer, nodeCount + 1);
+            IntBuffer reverseTargets = slice(buffer, edgeCount);
+
+            long[] privateWords = new long[bitWordCount(nodeCount)];
+            buffer.asLongBuffer().get(privateWords);
+            buffer.position(buffer.position() + privateWords.length * Long.BYTES);
+
+            byte[] nameBytes = new byte[nameLength];
+            buffer.get(nameBytes);
+            String[] names = nodeCount == 0 ? new String[0] : new String(nameBytes, StandardCharsets.UTF_8).split("\n", -1);
+
+            return new CallGraph(names, offsets, targets, reverseOffsets, reverseTargets, BitSet.valueOf(privateWords));
+        }
+    }
+
+    private static void putInts(ByteBuffer buffer, IntBuffer values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(values.get(i));
+        }
+    }
+
+    private static IntBuffer slice(ByteBuffer buffer, int count) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(count * Integer.BYTES);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return slice.asIntBuffer();
+    }
+
+    private static int bitWordCount(int nodeCount) {
+        return (nodeCount + 63) / 64;
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.limit();
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public boolean isPrivate(int id) {
+        return privateMethods.get(id);
+    }
+
+    /**
+     * Returns the ids of every declaration named "Class.method"; overloads
+     * share a name, so there can be several.
+     */
+    public synchronized int[] find(String name) {
+        if (idsByName == null) {
+            Map<String, List<Integer>> ids = new HashMap<>();
+            for (int id = 0; id < names.length; id++) {
+                ids.computeIfAbsent(names[id], k -> new ArrayList<>()).add(id);
+            }
+            idsByName = new HashMap<>();
+            ids.forEach((key, value) -> idsByName.put(key, value.stream().mapToInt(Integer::intValue).toArray()));
+        }
+        return idsByName.getOrDefault(name, new int[0]);
+    }
+
+    public int fanOut(int id) {
+        return offsets.get(id + 1) - offsets.get(id);
+    }
+
+    public int fanIn(int id) {
+        return reverseOffsets.get(id + 1) - reverseOffsets.get(id);
+    }
+
+    public int[] callees(int id) {
+        return row(offsets, targets, id);
+    }
+
+    public int[] callers(int id) {
+        return row(reverseOffsets, reverseTargets, id);
+    }
+
+    private static int[] row(IntBuffer rowOffsets, IntBuffer columns, int id) {
+        int start = rowOffsets.get(id);
+        int[] row = new int[rowOffsets.get(id + 1) - start];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = columns.get(start + i);
+        }
+        return row;
+    }
+
+    /**
+     * Every method that can reach the given one through calls, not
+     * including the method itself unless it is recursive.
+     */
+    public int[] transitiveCallers(int id) {
+        // Queued and reported differ only for the start, which is queued
+        // up front but reported only if a cycle leads back to it
+        BitSet queued = new BitSet(names.length);
+        BitSet reported = new BitSet(names.length);
+        int[] queue = new int[names.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = id;
+        queued.set(id);
+
+        while (head < tail) {
+            int current = queue[head++];
+            int end = reverseOffsets.get(current + 1);
+            for (int i = reverseOffsets.get(current); i < end; i++) {
+                int caller = reverseTargets.get(i);
+                reported.set(caller);
+                if (!queued.get(caller)) {
+                    queued.set(caller);
+                    queue[tail++] = caller;
+                }
+            }
+        }
+        return reported.stream().toArray();
+    }
+
+    /**
+     * Private methods that nothing but themselves calls.
+     */
+    public List<Integer> getUnreachablePrivateMethods() {
+        List<Integer> unreachable = new ArrayList<>();
+        for (int id = privateMethods.nextSetBit(0); id >= 0; id = privateMethods.nextSetBit(id + 1)) {
+            int end = reverseOffsets.get(id + 1);
+            boolean called = false;
+            for (int i = reverseOffsets.get(id); i < end && !called; i++) {
+                called = reverseTargets.get(i) != id;
+            }
+            if (!called) {
+                unreachable.add(id);
+            }
+        }
+        return unreachable;
+    }
+}
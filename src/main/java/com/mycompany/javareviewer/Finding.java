@@ -0,0 +1,174 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One reported finding. The fingerprint is built from the file, the rule, the
+ * enclosing class and method and the whitespace-normalized snippet, but not
+ * from the line number, so it survives code moving up or down the file.
+ *
+ * @author Andy
+ */
+public class Finding {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String file;
+    private final String rule;
+    private final String className;
+    private final String methodName;
+    private final int startLine;
+    private final int endLine;
+    private final String snippet;
+    private long fingerprint;
+
+    public Finding(String file, String rule, String className, String methodName, int startLine, int endLine, String snippet) {
+        this.file = file;
+        this.rule = rule;
+        this.className = className;
+        this.methodName = methodName;
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.snippet = snippet;
+        this.fingerprint = baseFingerprint();
+    }
+
+    public static Finding of(String file, SourceFile source, String rule, Node node, int startLine, int endLine) {
+        String className = enclosingName(node, TypeDeclaration.class);
+        String methodName = enclosingName(node, CallableDeclaration.class);
+        return new Finding(file, rule, className, methodName, startLine, endLine, normalize(source.getSnippet(startLine, endLine)));
+    }
+
+    public static Finding of(String file, SourceFile source, String rule, Node node) {
+        int startLine = node.getBegin().map(p -> p.line).orElse(-1);
+        int endLine = node.getEnd().map(p -> p.line).orElse(startLine);
+        return of(file, source, rule, node, startLine, endLine);
+    }
+
+    /**
+     * Name of the nearest enclosing declaration of the given kind, or "" if
+     * there is none. findAncestor would do, but its varargs signature makes
+     * every call an unchecked generic array creation.
+     */
+    static String enclosingName(Node node, Class<?> kind) {
+        for (Node parent = node.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+            if (kind.isInstance(parent)) {
+                return ((NodeWithSimpleName<?>) parent).getNameAsString();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Makes fingerprints unique within one run. Identical findings in the
+     * same method are told apart by the order they appear in.
+     */
+    public static void assignFingerprints(List<Finding> findings) {
+        Map<Long, Integer> occurrences = new HashMap<>();
+        for (Finding finding : findings) {
+            long base = finding.baseFingerprint();
+            int occurrence = occurrences.merge(base, 1, Integer::sum) - 1;
+            finding.fingerprint = occurrence == 0 ? base : mix(base, occurrence);
+        }
+    }
+
+    public Finding withFile(String file) {
+        return new Finding(file, rule, className, methodName, startLine, endLine, snippet);
+    }
+
+    public Finding withLineOffset(int offset) {
+        return new Finding(file, rule, className, methodName, startLine + offset, endLine + offset, snippet);
+    }
+
+    private long baseFingerprint() {
+        long hash = FNV_OFFSET;
+        hash = hash(hash, file);
+        hash = hash(hash, rule);
+        hash = hash(hash, className);
+        hash = hash(hash, methodName);
+        hash = hash(hash, snippet);
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Separator, so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    private static long mix(long hash, int occurrence) {
+        hash ^= occurrence;
+        hash *= FNV_PRIME;
+        return hash ^ (hash >>> 29);
+    }
+
+    static String normalize(String snippet) {
+        StringBuilder normalized = new StringBuilder(snippet.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public int getStartLine() {
+        return startLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return rule + ": " + file + ":" + startLine + " " + className + (methodName.isEmpty() ? "" : "." + methodName) + ", " + snippet;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+/**
+ * Scans many repositories in one process. Every repository's changed .java
+ * files become tasks on one shared thread pool, handed out round-robin so a
+ * very large repository cannot hold back the small ones. Results are cached
+ * by git blob id, so a file that is vendored into many repositories is
+ * parsed once. Each repository's report is printed as soon as it finishes.
+ *
+ * @author Andy
+ */
+public class FleetScanner {
+    private final ExecutorService pool;
+    private final Semaphore inFlight;
+    // One future per blob, so a repository that needs a blob another is
+    // still parsing waits for that parse instead of starting its own
+    private final ConcurrentHashMap<ObjectId, CompletableFuture<List<Finding>>> resultCache = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final PrintStream out;
+
+    public static class RepoJob {
+        public final String repoPath;
+        public final String oldRevision;
+        public final String newRevision;
+
+        public RepoJob(String repoPath, String oldRevision, String newRevision) {
+            this.repoPath = repoPath;
+            this.oldRevision = oldRevision;
+            this.newRevision = newRevision;
+        }
+
+        @Override
+        public String toString() {
+            return repoPath + " " + oldRevision + ".." + newRevision;
+        }
+    }
+
+    private static class FileTask {
+        final String path;
+        final ObjectId blobId;
+        final List<Edit> edits;
+
+        FileTask(String path, ObjectId blobId, List<Edit> edits) {
+            this.path = path;
+            this.blobId = blobId;
+            this.edits = edits;
+        }
+    }
+
+    private static class RepoScan {
+        final RepoJob job;
+        final long start = System.nanoTime();
+        final ConcurrentLinkedQueue<FileTask> pending = new ConcurrentLinkedQueue<>();
+        final List<Finding> findings = new ArrayList<>();
+        final AtomicInteger cacheHits = new AtomicInteger();
+        Repository repository;
+        AtomicInteger remaining;
+        int fileCount;
+        Exception error;
+
+        RepoScan(RepoJob job) {
+            this.job = job;
+        }
+    }
+
+    public FleetScanner(int threads, PrintStream out) {
+        this.pool = Executors.newFixedThreadPool(threads);
+        // Enough queued work to keep every thread busy, little enough that a
+        // repository that turns up late still gets a turn straight away
+        this.inFlight = new Semaphore(threads * 2);
+        this.out = out;
+    }
+
+    /**
+     * Reads a manifest with one "repository-path old-revision new-revision"
+     * entry per line. Blank lines and lines starting with # are skipped.
+     */
+    public static List<RepoJob> readManifest(Path manifest) throws IOException {
+        List<RepoJob> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length != 3) {
+                throw new IOException("Bad manifest line: " + line);
+            }
+            jobs.add(new RepoJob(parts[0], parts[1], parts[2]));
+        }
+        return jobs;
+    }
+
+    public void scan(List<RepoJob> jobs) throws InterruptedException {
+        long start = System.nanoTime();
+        AtomicInteger totalFiles = new AtomicInteger();
+
+        ExecutorCompletionService<RepoScan> enumerated = new ExecutorCompletionService<>(pool);
+        for (RepoJob job : jobs) {
+            enumerated.submit(() -> enumerate(job));
+        }
+
+        int enumerating = jobs.size();
+        List<RepoScan> active = new ArrayList<>();
+        int cursor = 0;
+        while (enumerating > 0 || !active.isEmpty()) {
+            Future<RepoScan> ready = active.isEmpty() ? enumerated.take() : enumerated.poll();
+            while (ready != null) {
+                enumerating--;
+                RepoScan scan = result(ready);
+                totalFiles.addAndGet(scan.fileCount);
+                if (scan.pending.isEmpty()) {
+                    finish(scan);
+                } else {
+                    active.add(scan);
+                }
+                ready = enumerated.poll();
+            }
+            if (active.isEmpty()) {
+                continue;
+            }
+
+            // One file per repository per turn
+            cursor %= active.size();
+            RepoScan scan = active.get(cursor);
+            FileTask task = scan.pending.poll();
+            inFlight.acquire();
+            pool.execute(() -> {
+                try {
+                    scanFile(scan, task);
+                } finally {
+                    inFlight.release();
+                    if (scan.remaining.decrementAndGet() == 0) {
+                        finish(scan);
+                    }
+                }
+            });
+
+            if (scan.pending.isEmpty()) {
+                active.remove(cursor);
+            } else {
+                cursor++;
+            }
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        out.println("FLEET: " + jobs.size() + " repositories, " + totalFiles.get() + " files, " + cacheHits.get() + " cache hits, "
+                + cacheMisses.get() + " parsed, " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static RepoScan result(Future<RepoScan> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // enumerate() records its own failures, so this is unexpected
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Opens the repository and lists the .java files that changed between
+     * the two revisions, with their changed line ranges.
+     */
+    private RepoScan enumerate(RepoJob job) {
+        RepoScan scan = new RepoScan(job);
+        try {
+            scan.repository = Git.open(new File(job.repoPath)).getRepository();
+            try (RevWalk revWalk = new RevWalk(scan.repository);
+                 DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                diffFormatter.setRepository(scan.repository);
+                diffFormatter.setDiffComparator(RawTextComparator.WS_IGNORE_ALL);
+                diffFormatter.setDetectRenames(true);
+                diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
+
+                ObjectId oldId = scan.repository.resolve(job.oldRevision);
+                ObjectId newId = scan.repository.resolve(job.newRevision);
+                if (oldId == null || newId == null) {
+                    throw new IOException("Unknown revision in " + job);
+                }
+
+                for (DiffEntry diff : diffFormatter.scan(revWalk.parseCommit(oldId).getTree(), revWalk.parseCommit(newId).getTree())) {
+                    if (diff.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                        continue;
+                    }
+                    List<Edit> edits = new ArrayList<>();
+                    for (Edit edit : diffFormatter.toFileHeader(diff).toEditList()) {
+                        if (edit.getEndB() > edit.getBeginB()) {
+                            edits.add(edit);
+                        }
+                    }
+                    if (!edits.isEmpty()) {
+                        scan.pending.add(new FileTask(diff.getNewPath(), diff.getNewId().toObjectId(), edits));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            scan.error = e;
+            scan.pending.clear();
+        }
+
+        scan.fileCount = scan.pending.size();
+        scan.remaining = new AtomicInteger(scan.fileCount);
+        return scan;
+    }
+
+    private void scanFile(RepoScan scan, FileTask task) {
+        try {
+            List<Finding> findings;
+            CompletableFuture<List<Finding>> created = new CompletableFuture<>();
+            CompletableFuture<List<Finding>> cached = resultCache.computeIfAbsent(task.blobId, k -> created);
+            if (cached != created) {
+                cacheHits.incrementAndGet();
+                scan.cacheHits.incrementAndGet();
+                findings = cached.join();
+            } else {
+                cacheMisses.incrementAndGet();
+                try (ObjectReader reader = scan.repository.newObjectReader()) {
+                    byte[] bytes = reader.open(task.blobId, Constants.OBJ_BLOB).getBytes();
+                    SourceFile source = SourceFile.fromBytes(task.path, bytes);
+                    // Cached without a path so another repository can reuse them
+                    findings = JavaReviewer.collectFindings("", source, source.getCompilationUnit());
+                    created.complete(findings);
+                } catch (Throwable e) {
+                    // Anything, even a StackOverflowError from a deeply nested
+                    // file, has to complete the future or waiting
+                    // repositories never return from join
+                    created.completeExceptionally(e);
+                    error(scan, task, e);
+                    return;
+                }
+            }
+
+            List<Finding> changed = new ArrayList<>();
+            for (Finding finding : findings) {
+                if (PreCommitCheck.isChanged(finding, task.edits)) {
+                    changed.add(finding.withFile(task.path));
+                }
+            }
+            synchronized (scan.findings) {
+                scan.findings.addAll(changed);
+            }
+        } catch (CompletionException e) {
+            error(scan, task, e.getCause());
+        }
+    }
+
+    private void error(RepoScan scan, FileTask task, Throwable e) {
+        // A StackOverflowError has no message
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        synchronized (out) {
+            out.println("ERROR: " + scan.job.repoPath + ", " + task.path + ", " + message);
+        }
+    }
+
+    private void finish(RepoScan scan) {
+        if (scan.repository != null) {
+            scan.repository.close();
+        }
+
+        List<Finding> findings;
+        synchronized (scan.findings) {
+            findings = new ArrayList<>(scan.findings);
+        }
+        findings.sort(Comparator.comparing(Finding::getFile).thenComparingInt(Finding::getStartLine));
+
+        synchronized (out) {
+            out.println("REPO: " + scan.job);
+            if (scan.error != null) {
+                out.println("ERROR: " + scan.error.getMessage());
+            }
+            for (Finding finding : findings) {
+                out.println(finding);
+            }
+            out.println("METRICS: " + scan.job.repoPath + ", " + scan.fileCount + " files, " + findings.size() + " findings, "
+                    + scan.cacheHits.get() + " cache hits, " + (System.nanoTime() - scan.start) / 1_000_000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+
+/**
+ * Keeps the last parsed version of each file and, when the file changes,
+ * re-parses only the members of its top-level types that the edit touched.
+ * The new members are spliced into the retained CompilationUnit, the
+ * detectors run over the new subtrees only, and the cached findings of every
+ * other member are shifted to their new lines.
+ *
+ * Anything the member-level path cannot handle safely, such as an edit to an
+ * import, a class header or the space between members, falls back to a full
+ * parse of the file.
+ *
+ * @author Andy
+ */
+public class IncrementalAnalyzer {
+    private final Map<String, FileState> files = new HashMap<>();
+
+    public static class Result {
+        public final List<Finding> findings;
+        // -1 when the whole file was parsed
+        public final int reparsedMembers;
+
+        Result(List<Finding> findings, int reparsedMembers) {
+            this.findings = findings;
+            this.reparsedMembers = reparsedMembers;
+        }
+    }
+
+    private static class Member {
+        BodyDeclaration<?> declaration;
+        // 1-based and inclusive, including the member's own comment
+        int beginLine;
+        int endLine;
+        List<Finding> findings = new ArrayList<>();
+    }
+
+    private static class Replacement {
+        Member member;
+        BodyDeclaration<?> declaration;
+        int beginLine;
+        int endLine;
+    }
+
+    private static class FileState {
+        String text;
+        List<Member> members = new ArrayList<>();
+        // Findings outside of any member, e.g. in a class annotation
+        List<Finding> otherFindings = new ArrayList<>();
+        boolean incremental = true;
+    }
+
+    public Result analyze(String path) throws IOException {
+        return analyze(path, SourceFile.read(path).getText());
+    }
+
+    public synchronized Result analyze(String path, String text) {
+        FileState previous = files.get(path);
+        if (previous == null) {
+            return fullParse(path, text);
+        }
+        return analyze(path, text, diff(previous.text, text));
+    }
+
+    /**
+     * Re-analyzes a file given the line edits from its previous version, for
+     * callers that already have them, e.g. from getChanges.
+     */
+    public synchronized Result analyze(String path, String text, List<Edit> edits) {
+        FileState state = files.get(path);
+        if (state == null || !state.incremental) {
+            return fullParse(path, text);
+        }
+        if (edits.isEmpty()) {
+            state.text = text;
+            return new Result(allFindings(state), 0);
+        }
+
+        Map<Member, List<Edit>> editsByMember = new HashMap<>();
+        for (Edit edit : edits) {
+            Member member = enclosingMember(state, edit);
+            if (member == null) {
+                return fullParse(path, text);
+            }
+            editsByMember.computeIfAbsent(member, k -> new ArrayList<>()).add(edit);
+        }
+
+        SourceFile source = SourceFile.fromText(path, text);
+        JavaParser parser = new JavaParser(SymbolSolverCache.getParserConfiguration());
+
+        // Parse every touched member before changing anything, so a member
+        // that does not parse leaves the retained state as it was
+        List<Replacement> replacements = new ArrayList<>();
+        for (Member member : state.members) {
+            List<Edit> memberEdits = editsByMember.get(member);
+            if (memberEdits == null) {
+                continue;
+            }
+
+            Replacement replacement = new Replacement();
+            replacement.member = member;
+            int shift = lineDelta(edits, member.beginLine);
+            replacement.beginLine = member.beginLine + shift;
+            replacement.endLine = member.endLine + shift;
+            for (Edit edit : memberEdits) {
+                replacement.endLine += (edit.getEndB() - edit.getBeginB()) - (edit.getEndA() - edit.getBeginA());
+            }
+
+            // Pad with blank lines so the snippet parses with its real line numbers
+            String memberText = "\n".repeat(replacement.beginLine - 1) + source.getSnippet(replacement.beginLine, replacement.endLine);
+            ParseResult<BodyDeclaration<?>> result = parser.parseBodyDeclaration(memberText);
+            if (!result.isSuccessful() || !result.getResult().isPresent()) {
+                // Nothing is swapped yet; fullParse replaces the state only
+                // if the whole file parses
+                return fullParse(path, text);
+            }
+            replacement.declaration = result.getResult().get();
+            replacements.add(replacement);
+        }
+
+        for (Replacement replacement : replacements) {
+            if (!replacement.member.declaration.replace(replacement.declaration)) {
+                // Part of the tree may already be swapped, so drop the state
+                files.remove(path);
+                return fullParse(path, text);
+            }
+        }
+        for (Member member : state.members) {
+            int shift = lineDelta(edits, member.beginLine);
+            if (!editsByMember.containsKey(member)) {
+                member.beginLine += shift;
+                member.endLine += shift;
+                member.findings.replaceAll(f -> f.withLineOffset(shift));
+            }
+        }
+        for (Replacement replacement : replacements) {
+            Member member = replacement.member;
+            member.declaration = replacement.declaration;
+            member.beginLine = replacement.beginLine;
+            member.endLine = replacement.endLine;
+            // Only now that it is in the tree does it have a class around it
+            member.findings = JavaReviewer.collectFindings(path, source, member.declaration);
+        }
+        state.otherFindings.replaceAll(f -> f.withLineOffset(lineDelta(edits, f.getStartLine())));
+        state.text = text;
+
+        return new Result(allFindings(state), replacements.size());
+    }
+
+    private synchronized Result fullParse(String path, String text) {
+        SourceFile source = SourceFile.fromText(path, text);
+        CompilationUnit cu = source.getCompilationUnit();
+
+        FileState state = new FileState();
+        state.text = text;
+        for (TypeDeclaration<?> type : cu.getTypes()) {
+            int typeBegin = type.getBegin().map(p -> p.line).orElse(-1);
+            int typeEnd = type.getEnd().map(p -> p.line).orElse(-1);
+            for (BodyDeclaration<?> declaration : type.getMembers()) {
+                Member member = new Member();
+                member.declaration = declaration;
+                member.beginLine = declaration.getComment().flatMap(Node::getBegin).orElse(declaration.getBegin().get()).line;
+                member.endLine = declaration.getEnd().get().line;
+
+                // Members that share a line with each other or with the type's
+                // braces cannot be cut out of the text on line boundaries
+                Member last = state.members.isEmpty() ? null : state.members.get(state.members.size() - 1);
+                if (member.beginLine <= typeBegin || member.endLine >= typeEnd || (last != null && member.beginLine <= last.endLine)) {
+                    state.incremental = false;
+                }
+                state.members.add(member);
+            }
+        }
+
+        for (Finding finding : JavaReviewer.collectFindings(path, source, cu)) {
+            Member member = memberAt(state, finding.getStartLine());
+            if (member != null) {
+                member.findings.add(finding);
+            } else {
+                state.otherFindings.add(finding);
+            }
+        }
+
+        files.put(path, state);
+        return new Result(allFindings(state), -1);
+    }
+
+    public synchronized void forget(String path) {
+        files.remove(path);
+    }
+
+    private static EditList diff(String oldText, String newText) {
+        RawText oldRaw = new RawText(oldText.getBytes(StandardCharsets.UTF_8));
+        RawText newRaw = new RawText(newText.getBytes(StandardCharsets.UTF_8));
+        return DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM).diff(RawTextComparator.DEFAULT, oldRaw, newRaw);
+    }
+
+    /**
+     * Finds the member whose lines fully contain the edit. Edits use 0-based,
+     * end-exclusive line indexes; a pure insertion has to land strictly
+     * between the member's first and last line.
+     */
+    private static Member enclosingMember(FileState state, Edit edit) {
+        for (Member member : state.members) {
+            int first = member.beginLine - 1;
+            int end = member.endLine;
+            boolean inside = edit.getBeginA() == edit.getEndA()
+                    ? first < edit.getBeginA() && edit.getBeginA() < end
+                    : first <= edit.getBeginA() && edit.getEndA() <= end;
+            if (inside) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    private static Member memberAt(FileState state, int line) {
+        for (Member member : state.members) {
+            if (member.beginLine <= line && line <= member.endLine) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * How far a line of the old text moves: the net number of lines added by
+     * the edits that end before it.
+     */
+    private static int lineDelta(List<Edit> edits, int line) {
+        int delta = 0;
+        for (Edit edit : edits) {
+            if (edit.getEndA() < line) {
+                delta += (edit.getEndB() - edit.getBeginB()) - (edit.getEndA() - edit.getBeginA());
+            }
+        }
+        return delta;
+    }
+
+    private static List<Finding> allFindings(FileState state) {
+        List<Finding> findings = new ArrayList<>(state.otherFindings);
+        for (Member member : state.members) {
+            findings.addAll(member.findings);
+        }
+        findings.sort(Comparator.comparingInt(Finding::getStartLine));
+        return findings;
+    }
+}
@@ -5,16 +5,19 @@
 package com.mycompany.javareviewer;
 
 import com.github.javaparser.JavaParser;
-import static com.github.javaparser.StaticJavaParser.parse;
+import com.github.javaparser.Position;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AssignExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.stmt.ExpressionStmt;
@@ -23,16 +26,21 @@ import com.github.javaparser.ast.stmt.ReturnStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import javax.swing.JFileChooser;
 import org.eclipse.jgit.api.Git;
@@ -101,13 +109,10 @@ public class JavaReviewer {
     public static List<NonEmptyDiamond> getNonEmptyDiamondOperators(String fileName) throws Exception {
         List<NonEmptyDiamond> nonEmptyDiamonds = new ArrayList<>();
 
-        FileInputStream in = new FileInputStream(fileName);
-        CompilationUnit cu = parse(in);
+        CompilationUnit cu = SourceFile.open(fileName).getCompilationUnit();
 
         cu.findAll(ObjectCreationExpr.class).forEach(oce -> {
-            if (oce.getType().isClassOrInterfaceType() && oce.getType().asClassOrInterfaceType().getTypeArguments().isPresent()
-                && !oce.getType().asClassOrInterfaceType().getTypeArguments().get().isEmpty()
-                && oce.getParentNode().isPresent() && oce.getParentNode().get() instanceof VariableDeclarator) {
+            if (isNonEmptyDiamond(oce)) {
                 NonEmptyDiamond nonEmptyDiamond = new NonEmptyDiamond();
                 nonEmptyDiamond.startLine = oce.getBegin().map(p -> p.line).orElse(-1);
                 nonEmptyDiamond.endLine = oce.getEnd().map(p -> p.line).orElse(-1);
@@ -117,6 +122,12 @@ public class JavaReviewer {
 
         return nonEmptyDiamonds;
     }
+
+    private static boolean isNonEmptyDiamond(ObjectCreationExpr oce) {
+        return oce.getType().isClassOrInterfaceType() && oce.getType().asClassOrInterfaceType().getTypeArguments().isPresent()
+            && !oce.getType().asClassOrInterfaceType().getTypeArguments().get().isEmpty()
+            && oce.getParentNode().isPresent() && oce.getParentNode().get() instanceof VariableDeclarator;
+    }
     
     public static class ChainedMethodCall {
         public int startLine;
@@ -126,8 +137,7 @@ public class JavaReviewer {
 
     public static List<ChainedMethodCall> getChainedMethodCalls(String fileName) throws Exception {
         List<ChainedMethodCall> chainedMethodCalls = new ArrayList<>();
-        FileInputStream in = new FileInputStream(fileName);
-        CompilationUnit cu = parse(in);
+        CompilationUnit cu = SourceFile.open(fileName).getCompilationUnit();
         cu.findAll(MethodCallExpr.class).forEach(mce -> {
             Node node = mce;
             while (node instanceof MethodCallExpr) {
@@ -158,8 +168,7 @@ public class JavaReviewer {
 
     public static List<StringLiteral> findStringLiterals(String filePath) throws Exception {
         List<StringLiteral> stringLiterals = new ArrayList<>();
-        FileInputStream in = new FileInputStream(filePath);
-        CompilationUnit cu = parse(in);
+        CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
         new VoidVisitorAdapter<Void>() {
             @Override
             public void visit(StringLiteralExpr n, Void arg) {
@@ -167,11 +176,10 @@ public class JavaReviewer {
                 super.visit(n, arg);
             }
         }.visit(cu, null);
-        in.close();
         return stringLiterals;
     }
     
-    private static class BooleanMethod {
+    static class BooleanMethod {
         String name;
         int lineNumber;
 
@@ -184,28 +192,26 @@ public class JavaReviewer {
     public static List<BooleanMethod> getBooleanMethods(String filePath) {
         List<BooleanMethod> booleanMethods = new ArrayList<>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            com.github.javaparser.ast.CompilationUnit cu = parse(in);
+            com.github.javaparser.ast.CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             new BooleanMethodVisitor().visit(cu, booleanMethods);
-            in.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return booleanMethods;
     }
 
-    private static class BooleanMethodVisitor extends com.github.javaparser.ast.visitor.VoidVisitorAdapter<List<BooleanMethod>> {
+    static class BooleanMethodVisitor extends com.github.javaparser.ast.visitor.VoidVisitorAdapter<List<BooleanMethod>> {
         @Override
         public void visit(MethodDeclaration md, List<BooleanMethod> arg) {
             super.visit(md, arg);
-            if (md.getType().toString().equals("boolean") || md.getType().toString().equals("Boolean")) {
+            if (Variable.classify(md.getType()) == Variable.Kind.BOOLEAN) {
                 arg.add(new BooleanMethod(md.getNameAsString(), md.getBegin().get().line));
             }
         }
     }
     
-    private static class NumericVariable {
+    static class NumericVariable {
         String name;
         int lineNumber;
 
@@ -218,30 +224,27 @@ public class JavaReviewer {
     public static List<NumericVariable> getNumericVariables(String filePath) {
         List<NumericVariable> numericVariables = new ArrayList<>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            com.github.javaparser.ast.CompilationUnit cu = parse(in);
+            com.github.javaparser.ast.CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             new NumericVariableVisitor().visit(cu, numericVariables);
-            in.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return numericVariables;
     }
 
-    private static class NumericVariableVisitor extends VoidVisitorAdapter<List<NumericVariable>> {
+    static class NumericVariableVisitor extends VoidVisitorAdapter<List<NumericVariable>> {
         @Override
         public void visit(VariableDeclarator vd, List<NumericVariable> arg) {
             super.visit(vd, arg);
-            if (vd.getType().asString().equals("double") || vd.getType().asString().equals("Double") || vd.getType().asString().equals("int") || vd.getType().asString().equals("Integer") || vd.getType().asString().equals("float")) {
-                NameExpr nameExpr = vd.getNameAsExpression();
-                int lineNumber = nameExpr.getBegin().get().line;
-                arg.add(new NumericVariable(nameExpr.getName().asString(), lineNumber));
+            if (Variable.classify(vd.getType()) == Variable.Kind.NUMERIC) {
+                int lineNumber = vd.getName().getBegin().get().line;
+                arg.add(new NumericVariable(vd.getNameAsString(), lineNumber));
             }
         }
     }
     
-    private static class NonVoidMethod {
+    static class NonVoidMethod {
         String name;
         int lineNumber;
 
@@ -254,22 +257,20 @@ public class JavaReviewer {
     public static List<NonVoidMethod> getNonVoidMethods(String filePath) {
         List<NonVoidMethod> nonVoidMethods = new ArrayList<NonVoidMethod>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            com.github.javaparser.ast.CompilationUnit cu = parse(in);
+            com.github.javaparser.ast.CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             new NonVoidMethodVisitor().visit(cu, nonVoidMethods);
-            in.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return nonVoidMethods;
     }
 
-    private static class NonVoidMethodVisitor extends com.github.javaparser.ast.visitor.VoidVisitorAdapter<List<NonVoidMethod>> {
+    static class NonVoidMethodVisitor extends com.github.javaparser.ast.visitor.VoidVisitorAdapter<List<NonVoidMethod>> {
         @Override
         public void visit(MethodDeclaration md, List<NonVoidMethod> arg) {
             super.visit(md, arg);
-            if (!md.getType().toString().equals("void")) {
+            if (!md.getType().isVoidType()) {
                 arg.add(new NonVoidMethod(md.getNameAsString(), md.getBegin().get().line));
             }
         }
@@ -292,11 +293,9 @@ public class JavaReviewer {
     public static List<PrivateStaticMethod> getPrivateStaticMethods(String filePath) {
         List<PrivateStaticMethod> privateStaticMethods = new ArrayList<PrivateStaticMethod>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            com.github.javaparser.ast.CompilationUnit cu = parse(in);
+            com.github.javaparser.ast.CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             new PrivateStaticMethodVisitor().visit(cu, privateStaticMethods);
-            in.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -314,13 +313,19 @@ public class JavaReviewer {
     }
     
     
-    private static class PrivateMethod {
+    static class PrivateMethod {
         String name;
         int lineNumber;
+        int columnNumber;
 
         public PrivateMethod(String name, int lineNumber) {
+            this(name, lineNumber, -1);
+        }
+
+        public PrivateMethod(String name, int lineNumber, int columnNumber) {
             this.name = name;
             this.lineNumber = lineNumber;
+            this.columnNumber = columnNumber;
         }
     }
     
@@ -331,11 +336,9 @@ public class JavaReviewer {
     public static List<PrivateMethod> getPrivateMethods(String filePath) {
         List<PrivateMethod> privateMethods = new ArrayList<PrivateMethod>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            com.github.javaparser.ast.CompilationUnit cu = parse(in);
+            com.github.javaparser.ast.CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             new PrivateMethodVisitor().visit(cu, privateMethods);
-            in.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -347,12 +350,12 @@ public class JavaReviewer {
         public void visit(MethodDeclaration md, List<PrivateMethod> arg) {
             super.visit(md, arg);
             if (md.isPrivate()) {
-                arg.add(new PrivateMethod(md.getNameAsString(), md.getBegin().get().line));
+                arg.add(new PrivateMethod(md.getNameAsString(), md.getBegin().get().line, md.getBegin().get().column));
             }
         }
     }
     
-    private static class BooleanVariable {
+    static class BooleanVariable {
         String name;
         int lineNumber;
 
@@ -369,25 +372,22 @@ public class JavaReviewer {
     public static List<BooleanVariable> getBooleanVariables(String filePath) {
         List<BooleanVariable> booleanVariables = new ArrayList<BooleanVariable>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            com.github.javaparser.ast.CompilationUnit cu = parse(in);
+            com.github.javaparser.ast.CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             new BooleanVariableVisitor().visit(cu, booleanVariables);
-            in.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return booleanVariables;
     }
 
-    private static class BooleanVariableVisitor extends VoidVisitorAdapter<List<BooleanVariable>> {
+    static class BooleanVariableVisitor extends VoidVisitorAdapter<List<BooleanVariable>> {
         @Override
         public void visit(VariableDeclarator vd, List<BooleanVariable> arg) {
             super.visit(vd, arg);
-            if (vd.getType().asString().equals("boolean")) {
-                NameExpr nameExpr = vd.getNameAsExpression();
-                int lineNumber = nameExpr.getBegin().get().line;
-                arg.add(new BooleanVariable(nameExpr.getName().asString(), lineNumber));
+            if (Variable.classify(vd.getType()) == Variable.Kind.BOOLEAN) {
+                int lineNumber = vd.getName().getBegin().get().line;
+                arg.add(new BooleanVariable(vd.getNameAsString(), lineNumber));
             }
         }
     }
@@ -410,8 +410,8 @@ public class JavaReviewer {
     public static List<MethodArgument> getMethodArguments(String filePath) {
         List<MethodArgument> arguments = new ArrayList<>();
 
-        try (FileInputStream in = new FileInputStream(filePath)) {
-            CompilationUnit cu = parse(in);
+        try {
+            CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
             cu.findAll(MethodDeclaration.class).forEach(method -> {
                 method.getParameters().forEach(param -> {
                     arguments.add(new MethodArgument(param.getNameAsString(), param.getRange().get().begin.line));
@@ -426,8 +426,8 @@ public class JavaReviewer {
     public static List<Integer> getReturnStatementLineNumbers(String filePath) {
         List<Integer> lineNumbers = new ArrayList<>();
 
-        try (FileInputStream in = new FileInputStream(filePath)) {
-            CompilationUnit cu = parse(in);
+        try {
+            CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
             cu.findAll(ReturnStmt.class).forEach(returnStmt -> {
                 lineNumbers.add(returnStmt.getRange().get().begin.line);
             });
@@ -441,8 +441,8 @@ public class JavaReviewer {
     public static List<Integer> getIfStatementLineNumbers(String filePath) {
         List<Integer> lineNumbers = new ArrayList<>();
 
-        try (FileInputStream in = new FileInputStream(filePath)) {
-            CompilationUnit cu = parse(in);
+        try {
+            CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             cu.findAll(IfStmt.class).forEach(ifStmt -> {
                 lineNumbers.add(ifStmt.getRange().get().begin.line);
@@ -457,8 +457,8 @@ public class JavaReviewer {
         public static List<Integer> getElseStatementLineNumbers(String filePath) {
         List<Integer> lineNumbers = new ArrayList<>();
 
-        try (FileInputStream in = new FileInputStream(filePath)) {
-            CompilationUnit cu = parse(in);
+        try {
+            CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
             cu.findAll(IfStmt.class).forEach(ifStmt -> {
                 if (ifStmt.getElseStmt().isPresent()) {
                     lineNumbers.add(ifStmt.getElseStmt().get().getRange().get().begin.line);
@@ -473,15 +473,8 @@ public class JavaReviewer {
     
     public static List<Integer> findStringInFile(String path, String searchString) {
         List<Integer> lineNumbers = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String line;
-            int lineNumber = 0;
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                if (line.contains(searchString)) {
-                    lineNumbers.add(lineNumber);
-                }
-            }
+        try {
+            lineNumbers.addAll(SourceFile.open(path).findString(searchString));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -491,26 +484,95 @@ public class JavaReviewer {
     public static class MethodCall {
         public String name;
         public int line;
+        // Number of arguments, -1 for a method reference, which can stand
+        // for a method of any arity
+        public int arguments;
+        // Begin position and "Class.name" of the declaration the call is
+        // credited to, see callerOf; -1 and "" when there is none
+        public int callerLine;
+        public int callerColumn;
+        public String callerName;
 
         public MethodCall(String name, int line) {
+            this(name, line, -1, -1, -1, "");
+        }
+
+        public MethodCall(String name, int line, int arguments, int callerLine, int callerColumn, String callerName) {
             this.name = name;
             this.line = line;
+            this.arguments = arguments;
+            this.callerLine = callerLine;
+            this.callerColumn = callerColumn;
+            this.callerName = callerName;
         }
     }
 
+    /**
+     * Finds method calls and method references, such as this::run. Each one
+     * records the declaration it is credited to in the call graph.
+     */
     public static List<MethodCall> findMethodCalls(String filePath) throws Exception {
-        FileInputStream in = new FileInputStream(filePath);
+        CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
         List<MethodCall> methodCalls = new ArrayList<>();
         new VoidVisitorAdapter<Object>() {
             @Override
             public void visit(MethodCallExpr n, Object arg) {
-                methodCalls.add(new MethodCall(n.getNameAsString(), n.getBegin().get().line));
+                methodCalls.add(methodCall(n.getNameAsString(), n.getArguments().size(), n));
+                super.visit(n, arg);
+            }
+
+            @Override
+            public void visit(MethodReferenceExpr n, Object arg) {
+                methodCalls.add(methodCall(n.getIdentifier(), -1, n));
                 super.visit(n, arg);
             }
-        }.visit(parse(in), null);
-        in.close();
+        }.visit(cu, null);
         return methodCalls;
     }
+
+    private static MethodCall methodCall(String name, int arguments, Node call) {
+        Node caller = callerOf(call);
+        if (caller == null) {
+            return new MethodCall(name, call.getBegin().get().line, arguments, -1, -1, "");
+        }
+
+        String memberName;
+        if (caller instanceof MethodDeclaration) {
+            memberName = ((MethodDeclaration) caller).getNameAsString();
+        } else if (caller instanceof InitializerDeclaration) {
+            memberName = ((InitializerDeclaration) caller).isStatic() ? "<clinit>" : "<init>";
+        } else if (caller instanceof FieldDeclaration) {
+            memberName = ((FieldDeclaration) caller).isStatic() ? "<clinit>" : "<init>";
+        } else {
+            memberName = "<init>";
+        }
+        // The same class lookup as MethodVisitor, so the names line up
+        String className = Finding.enclosingName(caller, ClassOrInterfaceDeclaration.class);
+        if (className.isEmpty()) {
+            className = Finding.enclosingName(caller, TypeDeclaration.class);
+        }
+        Position begin = caller.getBegin().get();
+        return new MethodCall(name, call.getBegin().get().line, arguments, begin.line, begin.column, className + "." + memberName);
+    }
+
+    /**
+     * The declaration a call is credited to: the outermost enclosing method,
+     * since findMethods does not look inside method bodies and so never
+     * reports the methods of anonymous or local classes there, otherwise the
+     * nearest constructor, initializer block or field.
+     */
+    private static Node callerOf(Node node) {
+        Node caller = null;
+        for (Node parent = node.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+            if (parent instanceof MethodDeclaration) {
+                caller = parent;
+            } else if (caller == null && (parent instanceof ConstructorDeclaration || parent instanceof InitializerDeclaration
+                    || parent instanceof FieldDeclaration)) {
+                caller = parent;
+            }
+        }
+        return caller;
+    }
     
     public static class MemberVariable {
         public String name;
@@ -525,7 +587,7 @@ public class JavaReviewer {
     }
 
     public static List<MemberVariable> findMemberVariables(String filePath) throws Exception {
-        FileInputStream in = new FileInputStream(filePath);
+        CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
         List<MemberVariable> variables = new ArrayList<>();
         new VoidVisitorAdapter<Object>() {
             String currentClass = "";
@@ -540,8 +602,7 @@ public class JavaReviewer {
                 variables.add(new MemberVariable(n.getVariables().get(0).getNameAsString(), n.getBegin().get().line, currentClass));
                 super.visit(n, arg);
             }
-        }.visit(parse(in), null);
-        in.close();
+        }.visit(cu, null);
         return variables;
     }
     
@@ -550,11 +611,21 @@ public class JavaReviewer {
         private String className;
         private String methodName;
         private int lineNumber;
+        private int columnNumber;
+        private int parameterCount;
+        private boolean varArgs;
 
         public MethodInfo(String className, String methodName, int lineNumber) {
+            this(className, methodName, lineNumber, -1, 0, false);
+        }
+
+        public MethodInfo(String className, String methodName, int lineNumber, int columnNumber, int parameterCount, boolean varArgs) {
             this.className = className;
             this.methodName = methodName;
             this.lineNumber = lineNumber;
+            this.columnNumber = columnNumber;
+            this.parameterCount = parameterCount;
+            this.varArgs = varArgs;
         }
 
         public String getClassName() {
@@ -568,15 +639,36 @@ public class JavaReviewer {
         public int getLineNumber() {
             return lineNumber;
         }
+
+        public int getColumnNumber() {
+            return columnNumber;
+        }
+
+        public int getParameterCount() {
+            return parameterCount;
+        }
+
+        public boolean isVarArgs() {
+            return varArgs;
+        }
+
+        /**
+         * Whether a call with this many arguments can be a call of this
+         * method; a negative count, from a method reference, always can.
+         */
+        public boolean accepts(int arguments) {
+            if (arguments < 0) {
+                return true;
+            }
+            return varArgs ? arguments >= parameterCount - 1 : arguments == parameterCount;
+        }
     }
 
     public static List<MethodInfo> findMethods(String filePath) {
         List<MethodInfo> methodList = new ArrayList<>();
         try {
             // Parse the file
-            FileInputStream in = new FileInputStream(filePath);
-            CompilationUnit cu = parse(in);
-            in.close();
+            CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             // Visit and print the methods names and line numbers
             cu.accept(new MethodVisitor(methodList), null);
@@ -599,36 +691,21 @@ public class JavaReviewer {
             String className = n.findAncestor(ClassOrInterfaceDeclaration.class).get().getNameAsString();
             // Get the method name
             String methodName = n.getNameAsString();
-            // Get the line number
+            // Get the line and column number
             int lineNumber = n.getBegin().get().line;
-            methodList.add(new MethodInfo(className, methodName, lineNumber));
+            int columnNumber = n.getBegin().get().column;
+            // Get the parameter count; a varargs parameter is always the last
+            int parameterCount = n.getParameters().size();
+            boolean varArgs = parameterCount > 0 && n.getParameter(parameterCount - 1).isVarArgs();
+            methodList.add(new MethodInfo(className, methodName, lineNumber, columnNumber, parameterCount, varArgs));
         }
     }
     
     
-    public static class VariableInfo {
-        public String className;
-        public String variableName;
-        public int lineNumber;
-
-        public VariableInfo(String className, String variableName, int lineNumber) {
-            this.className = className;
-            this.variableName = variableName;
-            this.lineNumber = lineNumber;
-        }
-
-        @Override
-        public String toString() {
-            return "Class Name: " + className + ", Variable Name: " + variableName + ", Line Number: " + lineNumber;
-        }
-    }
-
-    public static List<VariableInfo> findVariables(String filePath) {
-        List<VariableInfo> variablesInfo = new ArrayList<>();
+    public static List<Variable> findVariables(String filePath) {
+        List<Variable> variablesInfo = new ArrayList<>();
         try {
-            FileInputStream in = new FileInputStream(filePath);
-
-            CompilationUnit cu = parse(in);
+            CompilationUnit cu = SourceFile.open(filePath).getCompilationUnit();
 
             cu.accept(new VariableVisitor(variablesInfo), null);
             return variablesInfo;
@@ -639,23 +716,157 @@ public class JavaReviewer {
     }
 
     private static class VariableVisitor extends VoidVisitorAdapter<Void> {
-        private List<VariableInfo> variablesInfo;
+        private List<Variable> variablesInfo;
 
-        public VariableVisitor(List<VariableInfo> variablesInfo) {
+        public VariableVisitor(List<Variable> variablesInfo) {
             this.variablesInfo = variablesInfo;
         }
 
         @Override
         public void visit(VariableDeclarator variable, Void arg) {
-            String className = variable.findAncestor(com.github.javaparser.ast.body.TypeDeclaration.class).get().getName().asString();
-            String variableName = variable.getName().asString();
-            int lineNumber = variable.getBegin().get().line;
-            variablesInfo.add(new VariableInfo(className, variableName, lineNumber));
+            variablesInfo.add(Variable.of(variable));
         }
     }
 
     
     
+    /**
+     * Collects the findings that are reported in baseline mode. The root can
+     * be a whole CompilationUnit or any subtree of it.
+     */
+    public static List<Finding> collectFindings(String file, SourceFile source, Node root) {
+        List<Finding> findings = new ArrayList<>();
+
+        root.findAll(StringLiteralExpr.class).forEach(n -> {
+            findings.add(Finding.of(file, source, "HARDCODED STRING", n));
+        });
+        root.findAll(MethodCallExpr.class, mce -> mce.getScope().isPresent() && mce.getScope().get() instanceof MethodCallExpr).forEach(mce -> {
+            findings.add(Finding.of(file, source, "CHAINED METHOD CALL", mce));
+        });
+        root.findAll(ObjectCreationExpr.class, JavaReviewer::isNonEmptyDiamond).forEach(oce -> {
+            findings.add(Finding.of(file, source, "NON EMPTY DIAMOND", oce));
+        });
+        root.findAll(IfStmt.class, ifStmt -> ifStmt.getElseStmt().isPresent()).forEach(ifStmt -> {
+            Statement elseStmt = ifStmt.getElseStmt().get();
+            int line = elseStmt.getBegin().map(p -> p.line).orElse(-1);
+            findings.add(Finding.of(file, source, "ELSE STATEMENT", elseStmt, line, line));
+        });
+
+        findings.sort(Comparator.comparingInt(Finding::getStartLine));
+        return findings;
+    }
+
+    private static void runBaseline(Path baselineFile, File directory, boolean update) throws IOException {
+        List<Finding> findings = new ArrayList<>();
+        for (String path : findJavaFiles(directory)) {
+            String file = directory.getAbsoluteFile().toPath().relativize(Paths.get(path)).toString().replace('\\', '/');
+            try {
+                SourceFile source = SourceFile.read(path);
+                findings.addAll(collectFindings(file, source, source.getCompilationUnit()));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        Finding.assignFingerprints(findings);
+
+        if (update || !Files.exists(baselineFile)) {
+            Baseline.of(findings).save(baselineFile);
+            System.out.println("BASELINE WRITTEN: " + findings.size() + " findings");
+            return;
+        }
+
+        Baseline.Difference difference = Baseline.load(baselineFile).compare(findings);
+        for (Finding finding : difference.added) {
+            System.out.println("NEW " + finding);
+        }
+        for (Baseline.Resolved resolved : difference.resolved) {
+            System.out.println("RESOLVED " + resolved);
+        }
+        System.out.println("ADDED: " + difference.added.size() + ", RESOLVED: " + difference.resolved.size());
+
+        if (!difference.added.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static void runCallGraph(File directory, Path graphFile) throws IOException {
+        long start = System.nanoTime();
+        CallGraph.build(findJavaFiles(directory)).save(graphFile);
+        CallGraph callGraph = CallGraph.load(graphFile);
+        System.out.println("CALL GRAPH: " + callGraph.getNodeCount() + " methods, " + callGraph.getEdgeCount() + " calls, " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        for (int id : callGraph.getUnreachablePrivateMethods()) {
+            System.out.println("UNREACHABLE PRIVATE METHOD: " + callGraph.getName(id));
+        }
+    }
+
+    private static void printCallers(Path graphFile, String methodName) throws IOException {
+        CallGraph callGraph = CallGraph.load(graphFile);
+        for (int id : callGraph.find(methodName)) {
+            long start = System.nanoTime();
+            int[] callers = callGraph.transitiveCallers(id);
+            System.out.println("METHOD: " + callGraph.getName(id) + ", FAN IN: " + callGraph.fanIn(id) + ", FAN OUT: " + callGraph.fanOut(id)
+                    + ", TRANSITIVE CALLERS: " + callers.length + ", " + (System.nanoTime() - start) / 1000 + " us");
+            for (int caller : callers) {
+                System.out.println("CALLER: " + callGraph.getName(caller));
+            }
+        }
+    }
+
+    /**
+     * Re-analyzes .java files as they are saved. Only the members touched by
+     * each save are re-parsed. Directories created after the watch started
+     * are not picked up.
+     */
+    private static void watch(File directory) throws IOException, InterruptedException {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer();
+        for (String path : findJavaFiles(directory)) {
+            try {
+                analyzer.analyze(path);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Files.walk(directory.toPath()).filter(Files::isDirectory).forEach(dir -> {
+                try {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            System.out.println("WATCHING: " + directory);
+
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    if (!changed.toString().endsWith(".java") || !Files.isRegularFile(changed)) {
+                        continue;
+                    }
+
+                    try {
+                        long start = System.nanoTime();
+                        IncrementalAnalyzer.Result result = analyzer.analyze(changed.toString());
+                        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                        System.out.println("CHANGED: " + changed + ", " + (result.reparsedMembers < 0 ? "full parse" : result.reparsedMembers + " members re-parsed") + ", " + elapsedMillis + " ms");
+                        for (Finding finding : result.findings) {
+                            System.out.println(finding);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+                key.reset();
+            }
+        }
+    }
+
     public static List<String> findJavaFiles(File directory) {
         List<String> javaFiles = new ArrayList<>();
 
@@ -681,6 +892,59 @@ public class JavaReviewer {
      * @param args the command line arguments
      */
     public static void main(String[] args) throws FileNotFoundException, Exception {
+        if (args.length >= 3 && args[0].equals("--baseline")) {
+            // --baseline <baseline file> <directory> [--update]
+            File directory = new File(args[2]);
+            runBaseline(Paths.get(args[1]), directory, args.length > 3 && args[3].equals("--update"));
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("--pre-commit")) {
+            // --pre-commit [work tree] [budget in ms]
+            File workTree = new File(args.length > 1 ? args[1] : ".");
+            long budgetMillis = args.length > 2 ? Long.parseLong(args[2]) : PreCommitCheck.DEFAULT_BUDGET_MILLIS;
+            System.exit(PreCommitCheck.run(workTree, budgetMillis));
+        }
+
+        if (args.length >= 2 && args[0].equals("--pre-commit-daemon")) {
+            // --pre-commit-daemon <port file>, started by --pre-commit
+            PreCommitDaemon.serve(new File(args[1]));
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("--install-hook")) {
+            // --install-hook [work tree], run from the -hook jar
+            File hook = PreCommitCheck.installHook(new File(args.length > 1 ? args[1] : "."));
+            System.out.println("HOOK INSTALLED: " + hook);
+            return;
+        }
+
+        if (args.length >= 3 && args[0].equals("--call-graph")) {
+            // --call-graph <directory> <graph file>
+            runCallGraph(new File(args[1]), Paths.get(args[2]));
+            return;
+        }
+
+        if (args.length >= 3 && args[0].equals("--callers")) {
+            // --callers <graph file> <Class.method>
+            printCallers(Paths.get(args[1]), args[2]);
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--fleet")) {
+            // --fleet <manifest> [threads]
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            new FleetScanner(threads, System.out).scan(FleetScanner.readManifest(Paths.get(args[1])));
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--watch")) {
+            // --watch <directory>
+            File directory = new File(args[1]);
+            watch(directory);
+            return;
+        }
+
         JFileChooser fileChooser = new JFileChooser("/Users/tyson/Projects/testdata");
         fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
 
@@ -695,118 +959,122 @@ public class JavaReviewer {
         
         while (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
+            SymbolSolverCache.configure(file);
 
             List<String> javaFiles = findJavaFiles(file);
             for (String path : javaFiles) {
                 System.out.println("PATH: " + path);
-                List<VariableInfo> variables = findVariables(path);
+                // Every detector below shares one read and parse of the file
+                try (SourceFile.Session session = SourceFile.openSession()) {
+                    List<Variable> variables = findVariables(path);
                 
-                for (VariableInfo variable : variables) {
-                    System.out.println(variable);
-                }
+                    for (Variable variable : variables) {
+                        System.out.println(variable);
+                    }
                 
-                boolean isTrue = false;
+                    boolean isTrue = false;
                 
-                List<MethodInfo> methods = findMethods(path);
+                    List<MethodInfo> methods = findMethods(path);
                 
-                for (MethodInfo method : methods) {
-                    System.out.println("METHOD: " + method.getClassName() + ", " + method.getMethodName() + ", " + method.getLineNumber());
-                }
+                    for (MethodInfo method : methods) {
+                        System.out.println("METHOD: " + method.getClassName() + ", " + method.getMethodName() + ", " + method.getLineNumber());
+                    }
                 
-                List<MemberVariable> memberVariables = findMemberVariables(path);
+                    List<MemberVariable> memberVariables = findMemberVariables(path);
                 
-                for (MemberVariable memberVariable : memberVariables) {
-                    System.out.println("MEMBER VAR: " + memberVariable.className + ", " + memberVariable.name + ", " + memberVariable.line);
-                }
+                    for (MemberVariable memberVariable : memberVariables) {
+                        System.out.println("MEMBER VAR: " + memberVariable.className + ", " + memberVariable.name + ", " + memberVariable.line);
+                    }
                 
-                List<MethodCall> methodCalls = findMethodCalls(path);
+                    List<MethodCall> methodCalls = findMethodCalls(path);
                 
-                for (MethodCall methodCall : methodCalls) {
-                    System.out.println("METHOD CALL: " + methodCall.name + ", " + methodCall.line);
-                }
+                    for (MethodCall methodCall : methodCalls) {
+                        System.out.println("METHOD CALL: " + methodCall.name + ", " + methodCall.line);
+                    }
                 
-                List<Integer> assignments = findStringInFile(path, " = ");
+                    List<Integer> assignments = findStringInFile(path, " = ");
                 
-                for (Integer lineNumber : assignments) {
-                    System.out.println("Assignement line number: " + lineNumber);
-                }
+                    for (Integer lineNumber : assignments) {
+                        System.out.println("Assignement line number: " + lineNumber);
+                    }
                 
-                List<Integer> ifStatements = getIfStatementLineNumbers(path);
+                    List<Integer> ifStatements = getIfStatementLineNumbers(path);
                 
-                for (Integer lineNumber : ifStatements) {
-                    System.out.println("IF STATEMENT: " + lineNumber);
-                }
+                    for (Integer lineNumber : ifStatements) {
+                        System.out.println("IF STATEMENT: " + lineNumber);
+                    }
                 
-                List<Integer> elseStatements = getElseStatementLineNumbers(path);
+                    List<Integer> elseStatements = getElseStatementLineNumbers(path);
                 
-                for (Integer lineNumber: elseStatements) {
-                    System.out.println("ELSE STATEMENT PRESENT AT: " + lineNumber);
-                }
+                    for (Integer lineNumber: elseStatements) {
+                        System.out.println("ELSE STATEMENT PRESENT AT: " + lineNumber);
+                    }
                 
-                List<Integer> returnStatements = getReturnStatementLineNumbers(path);
+                    List<Integer> returnStatements = getReturnStatementLineNumbers(path);
                 
-                for (Integer lineNumber: returnStatements) {
-                    System.out.println("RETURN STATEMENT: " + lineNumber);
-                }
+                    for (Integer lineNumber: returnStatements) {
+                        System.out.println("RETURN STATEMENT: " + lineNumber);
+                    }
                 
-                List<MethodArgument> methodArguments = getMethodArguments(path);
+                    List<MethodArgument> methodArguments = getMethodArguments(path);
                 
-                for (MethodArgument arg : methodArguments) {
-                    System.out.println("METHOD ARG: " + arg.name + ", " + arg.line);
-                }
+                    for (MethodArgument arg : methodArguments) {
+                        System.out.println("METHOD ARG: " + arg.name + ", " + arg.line);
+                    }
                 
-                List<BooleanVariable> booleanVariables = getBooleanVariables(path);
+                    List<BooleanVariable> booleanVariables = getBooleanVariables(path);
                 
-                for (BooleanVariable booleanVar : booleanVariables) {
-                    System.out.println("BOOL: " + booleanVar.name + ", " + booleanVar.lineNumber);
-                }
+                    for (BooleanVariable booleanVar : booleanVariables) {
+                        System.out.println("BOOL: " + booleanVar.name + ", " + booleanVar.lineNumber);
+                    }
                 
-                List<PrivateMethod> privateMethods = getPrivateMethods(path);
+                    List<PrivateMethod> privateMethods = getPrivateMethods(path);
                 
-                for (PrivateMethod privateMethod : privateMethods) {
-                    System.out.println("PRIVATE METHOD: " + privateMethod.name + ", " + privateMethod.lineNumber);
-                }
+                    for (PrivateMethod privateMethod : privateMethods) {
+                        System.out.println("PRIVATE METHOD: " + privateMethod.name + ", " + privateMethod.lineNumber);
+                    }
                 
-                List<PrivateStaticMethod> privateStaticMethods = getPrivateStaticMethods(path);
+                    List<PrivateStaticMethod> privateStaticMethods = getPrivateStaticMethods(path);
                 
-                for (PrivateStaticMethod privateStaticMethod : privateStaticMethods) {
-                    System.out.println("PRIVATE STATIC METHOD: " + privateStaticMethod.name + privateStaticMethod.lineNumber);
-                }
+                    for (PrivateStaticMethod privateStaticMethod : privateStaticMethods) {
+                        System.out.println("PRIVATE STATIC METHOD: " + privateStaticMethod.name + privateStaticMethod.lineNumber);
+                    }
                 
-                List<NonVoidMethod> nonVoidMethods = getNonVoidMethods(path);
+                    List<NonVoidMethod> nonVoidMethods = getNonVoidMethods(path);
                 
-                for (NonVoidMethod nonVoidMethod : nonVoidMethods) {
-                    System.out.println("NON VOID METHOD: " + nonVoidMethod.name + ", " + nonVoidMethod.lineNumber);
-                }
+                    for (NonVoidMethod nonVoidMethod : nonVoidMethods) {
+                        System.out.println("NON VOID METHOD: " + nonVoidMethod.name + ", " + nonVoidMethod.lineNumber);
+                    }
                 
-                List<NumericVariable> numericVariables = getNumericVariables(path);
+                    List<NumericVariable> numericVariables = getNumericVariables(path);
                 
-                for (NumericVariable numericVariable : numericVariables) {
-                    System.out.println("NUM: " + numericVariable.name + ", " + numericVariable.lineNumber);
-                }
+                    for (NumericVariable numericVariable : numericVariables) {
+                        System.out.println("NUM: " + numericVariable.name + ", " + numericVariable.lineNumber);
+                    }
                 
-                List<BooleanMethod> booleanMethods = getBooleanMethods(path);
+                    List<BooleanMethod> booleanMethods = getBooleanMethods(path);
                 
-                for (BooleanMethod booleanMethod : booleanMethods) {
-                    System.out.println("BOOL METHOD: " + booleanMethod.name + ", " + booleanMethod.lineNumber);
-                }
+                    for (BooleanMethod booleanMethod : booleanMethods) {
+                        System.out.println("BOOL METHOD: " + booleanMethod.name + ", " + booleanMethod.lineNumber);
+                    }
                 
-                List<StringLiteral> hardcodedStrings = findStringLiterals(path);
+                    List<StringLiteral> hardcodedStrings = findStringLiterals(path);
                 
-                for (StringLiteral hardcodedString : hardcodedStrings) {
-                    System.out.println("HARDCODED STRING: " + hardcodedString.value + ", " + hardcodedString.lineNumber);
-                }
+                    for (StringLiteral hardcodedString : hardcodedStrings) {
+                        System.out.println("HARDCODED STRING: " + hardcodedString.value + ", " + hardcodedString.lineNumber);
+                    }
                 
-                List<ChainedMethodCall> chainedMethodCalls = getChainedMethodCalls(path);
+                    List<ChainedMethodCall> chainedMethodCalls = getChainedMethodCalls(path);
                 
-                for (ChainedMethodCall chainedMethodCall : chainedMethodCalls) {
-                    System.out.println("CHAINED METHOD CALL AT: " + chainedMethodCall.startLine + ", " + chainedMethodCall.endLine + ", " + chainedMethodCall.methodCall);
-                }
+                    for (ChainedMethodCall chainedMethodCall : chainedMethodCalls) {
+                        System.out.println("CHAINED METHOD CALL AT: " + chainedMethodCall.startLine + ", " + chainedMethodCall.endLine + ", " + chainedMethodCall.methodCall);
+                    }
                 
-                List<NonEmptyDiamond> nonEmptyDiamonds = getNonEmptyDiamondOperators(path);
+                    List<NonEmptyDiamond> nonEmptyDiamonds = getNonEmptyDiamondOperators(path);
                 
-                for (NonEmptyDiamond nonEmptyDiamond : nonEmptyDiamonds) {
-                    System.out.println("NON EMPTY DIAMOND: " + nonEmptyDiamond.startLine + ", " + nonEmptyDiamond.endLine);
+                    for (NonEmptyDiamond nonEmptyDiamond : nonEmptyDiamonds) {
+                        System.out.println("NON EMPTY DIAMOND: " + nonEmptyDiamond.startLine + ", " + nonEmptyDiamond.endLine);
+                    }
                 }
                 
             }
@@ -0,0 +1,274 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParserConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.jgit.api.errors.CanceledException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Checks what is staged for the next commit. The index is diffed against
+ * HEAD, only the staged .java blobs are parsed, straight from the object
+ * database, and only findings on staged lines are reported. Nothing in the
+ * working tree is read and no directory is scanned.
+ *
+ * Most of a cold run is JVM start-up, class loading and interpreted code
+ * rather than the check itself. installHook writes a hook that runs from the
+ * unsigned -hook jar with an AppCDS archive of the classes a check loads,
+ * recorded on the first run and again whenever the jar is rebuilt, and that
+ * hands the check to a warm PreCommitDaemon once one is running.
+ *
+ * @author Andy
+ */
+public class PreCommitCheck {
+    public static final long DEFAULT_BUDGET_MILLIS = 500;
+    // Set on the run that records the class data archive
+    static final String TRAIN_PROPERTY = "javareviewer.train";
+    static final String ARCHIVE_NAME = "javareviewer-hook.jsa";
+    // Touches every rule, so the archive holds the parser and detector classes
+    // even when the recording commit stages no .java file
+    private static final String TRAINING_SOURCE = "import java.util.ArrayList;\n"
+            + "class Training {\n"
+            + "    String check(int value) {\n"
+            + "        List<String> names = new ArrayList<String>();\n"
+            + "        if (value > 0) {\n"
+            + "            return \"positive\".trim().toLowerCase();\n"
+            + "        } else {\n"
+            + "            return names.toString();\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+    // DiffFormatter's default algorithm
+    private static final DiffAlgorithm DIFF = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+
+    public static List<Finding> check(File workTree) throws IOException {
+        // Inside a hook git sets GIT_DIR and, for commit -a or a partial
+        // commit, GIT_INDEX_FILE to a temporary index; read both from there
+        try (Repository repository = new FileRepositoryBuilder().readEnvironment().findGitDir(workTree).setMustExist(true).build()) {
+            return check(repository);
+        }
+    }
+
+    static List<Finding> check(Repository repository) throws IOException {
+        List<Finding> findings = new ArrayList<>();
+
+        try (ObjectReader reader = repository.newObjectReader();
+             TreeWalk walk = new TreeWalk(repository, reader)) {
+            ObjectId headTree = repository.resolve(Constants.HEAD + "^{tree}");
+            walk.addTree(headTree == null ? new EmptyTreeIterator() : new CanonicalTreeParser(null, reader, headTree));
+            walk.addTree(new DirCacheIterator(repository.readDirCache()));
+            walk.setRecursive(true);
+            walk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".java"), TreeFilter.ANY_DIFF));
+
+            // The tree walk and line diff that DiffFormatter would run, without
+            // the patch and hunk header classes it loads on top of them
+            RenameDetector renameDetector = new RenameDetector(repository);
+            renameDetector.addAll(DiffEntry.scan(walk));
+            List<DiffEntry> diffs;
+            try {
+                diffs = renameDetector.compute(reader, NullProgressMonitor.INSTANCE);
+            } catch (CanceledException e) {
+                // Cannot happen without a progress monitor that cancels
+                throw new IOException(e);
+            }
+
+            for (DiffEntry diff : diffs) {
+                if (diff.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                    continue;
+                }
+
+                byte[] bytes = reader.open(diff.getNewId().toObjectId(), Constants.OBJ_BLOB).getCachedBytes();
+                RawText oldText = diff.getChangeType() == DiffEntry.ChangeType.ADD ? RawText.EMPTY_TEXT
+                        : new RawText(reader.open(diff.getOldId().toObjectId(), Constants.OBJ_BLOB).getCachedBytes());
+                List<Edit> stagedEdits = new ArrayList<>();
+                for (Edit edit : DIFF.diff(RawTextComparator.WS_IGNORE_ALL, oldText, new RawText(bytes))) {
+                    if (edit.getEndB() > edit.getBeginB()) {
+                        stagedEdits.add(edit);
+                    }
+                }
+                if (stagedEdits.isEmpty()) {
+                    continue;
+                }
+
+                String path = diff.getNewPath();
+                SourceFile source = SourceFile.fromBytes(path, bytes);
+                try {
+                    for (Finding finding : JavaReviewer.collectFindings(path, source, source.getCompilationUnit())) {
+                        if (isChanged(finding, stagedEdits)) {
+                            findings.add(finding);
+                        }
+                    }
+                } catch (ParseProblemException e) {
+                    System.out.println("PARSE ERROR: " + path + ", " + e.getProblems().get(0).getMessage());
+                }
+            }
+        }
+
+        return findings;
+    }
+
+    /**
+     * Edits use 0-based, end-exclusive line indexes; findings use 1-based
+     * line numbers.
+     */
+    static boolean isChanged(Finding finding, List<Edit> edits) {
+        for (Edit edit : edits) {
+            if (finding.getStartLine() <= edit.getEndB() && finding.getEndLine() > edit.getBeginB()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prints the staged findings and returns the exit status for the hook:
+     * 1 when anything was found, 0 otherwise. Going over the time budget is
+     * reported but does not block the commit. When the hook names a port
+     * file, the check is handed to the resident PreCommitDaemon, which is
+     * started after the first check that finds none running.
+     */
+    public static int run(File workTree, long budgetMillis) throws IOException {
+        String portFile = System.getProperty(PreCommitDaemon.PORT_FILE_PROPERTY);
+        boolean training = Boolean.getBoolean(TRAIN_PROPERTY);
+        // A training run has to load everything a check in this JVM loads
+        if (portFile != null && !training) {
+            Integer status = PreCommitDaemon.request(new File(portFile), workTree, budgetMillis);
+            if (status != null) {
+                return status;
+            }
+        }
+
+        useRawLanguageLevel();
+        long start = System.nanoTime();
+        int status = report(check(workTree), start, budgetMillis, System.out);
+
+        if (training) {
+            train();
+        }
+        if (portFile != null) {
+            PreCommitDaemon.start(new File(portFile));
+        }
+        return status;
+    }
+
+    static int report(List<Finding> findings, long start, long budgetMillis, PrintStream out) {
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        for (Finding finding : findings) {
+            out.println(finding);
+        }
+        out.println("STAGED FINDINGS: " + findings.size() + ", " + elapsedMillis + " ms");
+        if (elapsedMillis > budgetMillis) {
+            out.println("WARNING: pre-commit check took " + elapsedMillis + " ms, budget is " + budgetMillis + " ms");
+        }
+        return findings.isEmpty() ? 0 : 1;
+    }
+
+    static void useRawLanguageLevel() {
+        // The language level validators walk every tree once more and only
+        // report what javac rejects anyway; a cold JVM runs them interpreted
+        SymbolSolverCache.getParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.RAW);
+    }
+
+    static void train() {
+        SourceFile source = SourceFile.fromText("Training.java", TRAINING_SOURCE);
+        JavaReviewer.collectFindings("Training.java", source, source.getCompilationUnit());
+    }
+
+    /**
+     * Writes the pre-commit hook of a repository and runs it once to record
+     * its class data archive. Has to be called from the -hook jar, which the
+     * hook then runs from. Returns the hook file.
+     */
+    public static File installHook(File workTree) throws IOException, InterruptedException {
+        File jar = codeSource(PreCommitCheck.class);
+        if (!jar.getName().endsWith(".jar") || !jar.equals(codeSource(Repository.class))) {
+            throw new IOException("Run --install-hook from the -hook jar: java -jar target/JavaReviewer-1.0-SNAPSHOT-hook.jar --install-hook");
+        }
+
+        File gitDir;
+        File hooksDir;
+        try (Repository repository = new FileRepositoryBuilder().readEnvironment().findGitDir(workTree).setMustExist(true).build()) {
+            gitDir = repository.getDirectory().getCanonicalFile();
+            String hooksPath = repository.getConfig().getString("core", null, "hooksPath");
+            hooksDir = hooksPath == null ? new File(gitDir, "hooks") : repository.getFS().resolve(repository.getWorkTree(), hooksPath);
+        }
+        File archive = new File(gitDir, ARCHIVE_NAME);
+        File portFile = new File(gitDir, PreCommitDaemon.PORT_FILE_NAME);
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        // C1 only: a hook is over before C2 code would pay for itself
+        String options = "-XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xshare:auto -Xlog:cds=off -Xlog:cds+dynamic=off"
+                + " -D" + PreCommitDaemon.PORT_FILE_PROPERTY + "=\"$PORTS\" -cp \"$JAR\"";
+        String command = JavaReviewer.class.getName() + " --pre-commit .";
+
+        String script = "#!/bin/sh\n"
+                + "# JavaReviewer pre-commit check, written by JavaReviewer --install-hook\n"
+                + "JAVA=" + quote(java) + "\n"
+                + "JAR=" + quote(jar.getPath()) + "\n"
+                + "ARCHIVE=" + quote(archive.getPath()) + "\n"
+                + "PORTS=" + quote(portFile.getPath()) + "\n"
+                + "# JGit runs git config --system to find the system config; the check needs none of it\n"
+                + "export GIT_CONFIG_NOSYSTEM=1\n"
+                + "if [ -f \"$ARCHIVE\" ] && [ ! \"$JAR\" -nt \"$ARCHIVE\" ]; then\n"
+                + "    exec \"$JAVA\" -XX:SharedArchiveFile=\"$ARCHIVE\" " + options + " " + command + "\n"
+                + "fi\n"
+                + "# First run, or the jar was rebuilt: record the classes a check loads\n"
+                + "rm -f \"$ARCHIVE\"\n"
+                + "exec \"$JAVA\" -XX:ArchiveClassesAtExit=\"$ARCHIVE\" -D" + TRAIN_PROPERTY + "=true " + options + " " + command + "\n";
+
+        hooksDir.mkdirs();
+        File hook = new File(hooksDir, "pre-commit");
+        Files.write(hook.toPath(), script.getBytes(StandardCharsets.UTF_8));
+        if (!hook.setExecutable(true)) {
+            throw new IOException("Cannot make " + hook + " executable");
+        }
+
+        // Record the archive and start the daemon now rather than on the
+        // first commit
+        Files.deleteIfExists(archive.toPath());
+        Process process = new ProcessBuilder(hook.getPath()).directory(workTree).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        process.waitFor();
+        return hook;
+    }
+
+    static File codeSource(Class<?> type) throws IOException {
+        try {
+            return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException | NullPointerException e) {
+            throw new IOException("Cannot locate the jar of " + type.getName(), e);
+        }
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.List;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+/**
+ * Resident pre-commit check for one repository. A cold JVM spends most of a
+ * hook run loading and interpreting JGit and JavaParser; the daemon keeps
+ * both loaded and compiled, and the hook JVM only forwards its working
+ * directory and git environment over a loopback socket and prints the
+ * answer.
+ *
+ * The daemon writes its port and a random token to the port file, readable
+ * by the owner only, and serves one check at a time. It exits after
+ * IDLE_MILLIS without a request, when the port file goes away, or on the
+ * first request after its jar was rebuilt, leaving that check to the hook,
+ * which then starts a new one.
+ *
+ * @author Andy
+ */
+public class PreCommitDaemon {
+    static final String PORT_FILE_PROPERTY = "javareviewer.daemon";
+    static final String PORT_FILE_NAME = "javareviewer-hook.port";
+    static final String LOG_FILE_NAME = "javareviewer-hook.log";
+    static final int IDLE_MILLIS = 30 * 60 * 1000;
+    static final int POLL_MILLIS = 10 * 1000;
+    static final int CONNECT_TIMEOUT_MILLIS = 100;
+    static final int WARM_UP_ROUNDS = 100;
+    // What FileRepositoryBuilder.readEnvironment reads in the hook's JVM
+    private static final String[] GIT_ENVIRONMENT = {"GIT_DIR", "GIT_WORK_TREE", "GIT_INDEX_FILE", "GIT_OBJECT_DIRECTORY"};
+    private static final String EXIT = "EXIT ";
+
+    private PreCommitDaemon() {
+    }
+
+    /**
+     * Runs the check in the daemon named by the port file and prints its
+     * output. Returns the hook's exit status, or null when no daemon
+     * answered and the caller has to check in process.
+     */
+    static Integer request(File portFile, File workTree, long budgetMillis) {
+        String contents = readPortFile(portFile);
+        if (contents == null) {
+            return null;
+        }
+
+        String[] address = contents.split(" ");
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address[0])), CONNECT_TIMEOUT_MILLIS);
+            PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+            out.println(address[1]);
+            out.println(workTree.getAbsolutePath());
+            for (String name : GIT_ENVIRONMENT) {
+                String value = System.getenv(name);
+                out.println(value == null ? "" : value);
+            }
+            out.println(budgetMillis);
+            out.flush();
+            socket.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith(EXIT)) {
+                    return Integer.parseInt(line.substring(EXIT.length()));
+                }
+                System.out.println(line);
+            }
+            // The daemon closed without an answer: it is stale or the check failed
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts a daemon for the port file in the background unless one
+     * already answers there. Its output goes to LOG_FILE_NAME next to the
+     * port file, so git does not wait on it.
+     */
+    static void start(File portFile) throws IOException {
+        if (isRunning(portFile)) {
+            return;
+        }
+
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        File jar = PreCommitCheck.codeSource(PreCommitDaemon.class);
+        File log = new File(portFile.getParentFile(), LOG_FILE_NAME);
+        new ProcessBuilder(java, "-XX:+UseSerialGC", "-Xmx256m", "-cp", jar.getPath(), JavaReviewer.class.getName(), "--pre-commit-daemon", portFile.getPath())
+                .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+    }
+
+    private static boolean isRunning(File portFile) {
+        String contents = readPortFile(portFile);
+        if (contents == null) {
+            return false;
+        }
+
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(contents.split(" ")[0])), CONNECT_TIMEOUT_MILLIS);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Serves checks until the daemon has been idle for IDLE_MILLIS, its jar
+     * changes or its port file is removed or taken over by another daemon.
+     */
+    public static void serve(File portFile) throws IOException {
+        File jar = PreCommitCheck.codeSource(PreCommitDaemon.class);
+        long jarModified = jar.lastModified();
+        String token = new BigInteger(128, new SecureRandom()).toString(Character.MAX_RADIX);
+
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            String address = server.getLocalPort() + " " + token;
+            writePortFile(portFile, address);
+            server.setSoTimeout(POLL_MILLIS);
+
+            // Requests wait in the backlog meanwhile rather than start
+            // another daemon
+            warmUp(portFile.getParentFile());
+
+            long lastRequest = System.currentTimeMillis();
+            while (System.currentTimeMillis() - lastRequest < IDLE_MILLIS && address.equals(readPortFile(portFile))) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+
+                try (socket) {
+                    if (jar.lastModified() != jarModified) {
+                        break;
+                    }
+                    handle(socket, token);
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+                lastRequest = System.currentTimeMillis();
+            }
+
+            if (address.equals(readPortFile(portFile))) {
+                Files.delete(portFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * Runs the parser and detectors, and the index diff of the daemon's own
+     * repository, until the JIT has compiled them.
+     */
+    private static void warmUp(File gitDir) {
+        PreCommitCheck.useRawLanguageLevel();
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            PreCommitCheck.train();
+            if (i % 10 == 0) {
+                try (Repository repository = new FileRepositoryBuilder().setGitDir(gitDir).setMustExist(true).build()) {
+                    PreCommitCheck.check(repository);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static String readPortFile(File portFile) {
+        try {
+            return new String(Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void handle(Socket socket, String token) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        if (!token.equals(in.readLine())) {
+            return;
+        }
+        File workTree = new File(in.readLine());
+        String[] environment = new String[GIT_ENVIRONMENT.length];
+        for (int i = 0; i < environment.length; i++) {
+            environment[i] = in.readLine();
+        }
+        long budgetMillis = Long.parseLong(in.readLine());
+
+        long start = System.nanoTime();
+        List<Finding> findings;
+        try (Repository repository = open(workTree, environment)) {
+            findings = PreCommitCheck.check(repository);
+        }
+        PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+        int status = PreCommitCheck.report(findings, start, budgetMillis, out);
+        out.println(EXIT + status);
+        out.flush();
+    }
+
+    /**
+     * Opens the repository the way readEnvironment would in the hook's JVM,
+     * with relative paths taken from the hook's working directory.
+     */
+    private static Repository open(File workTree, String[] environment) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder();
+        if (!environment[0].isEmpty()) {
+            builder.setGitDir(resolve(workTree, environment[0]));
+        }
+        if (!environment[1].isEmpty()) {
+            builder.setWorkTree(resolve(workTree, environment[1]));
+        }
+        if (!environment[2].isEmpty()) {
+            builder.setIndexFile(resolve(workTree, environment[2]));
+        }
+        if (!environment[3].isEmpty()) {
+            builder.setObjectDirectory(resolve(workTree, environment[3]));
+        }
+        if (builder.getGitDir() == null) {
+            builder.findGitDir(workTree);
+        }
+        return builder.setMustExist(true).build();
+    }
+
+    private static File resolve(File directory, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(directory, path);
+    }
+
+    private static void writePortFile(File portFile, String address) throws IOException {
+        File temporary = new File(portFile.getPath() + ".tmp");
+        Files.deleteIfExists(temporary.toPath());
+        Files.createFile(temporary.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        Files.write(temporary.toPath(), address.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), portFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
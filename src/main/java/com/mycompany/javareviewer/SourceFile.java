@@ -0,0 +1,261 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The in-memory contents of one source file. The file is read once, straight
+ * into an array of its size, and the same text is handed to the parser, the lexical
+ * search and snippet rendering. Inside a Session the detectors that run over
+ * a path share one read and one parse; outside of one every open reads and
+ * parses the file afresh and nothing is kept.
+ *
+ * @author Andy
+ */
+public final class SourceFile {
+    private static final ThreadLocal<Session> SESSIONS = new ThreadLocal<>();
+    // A JavaParser is not thread-safe but can be reused, so each thread keeps one
+    private static final ThreadLocal<JavaParser> PARSERS = ThreadLocal.withInitial(() -> new JavaParser(SymbolSolverCache.getParserConfiguration()));
+
+    private final String path;
+    private final String text;
+    private int[] lineStarts;
+    private CompilationUnit compilationUnit;
+    private ParseProblemException parseProblem;
+
+    private SourceFile(String path, String text) {
+        this.path = path;
+        // Drop a UTF-8 byte order mark so it does not end up in the first token
+        this.text = !text.isEmpty() && text.charAt(0) == '\uFEFF' ? text.substring(1) : text;
+    }
+
+    /**
+     * The files opened on one thread between openSession and close. Use it
+     * with try-with-resources; closing it drops every file and parse it
+     * holds. Sessions nest, and an inner one does not see the outer one's
+     * files.
+     */
+    public static final class Session implements AutoCloseable {
+        private final Map<String, SourceFile> files = new HashMap<>();
+        private final Session outer;
+
+        private Session(Session outer) {
+            this.outer = outer;
+        }
+
+        @Override
+        public void close() {
+            files.clear();
+            if (SESSIONS.get() == this) {
+                if (outer == null) {
+                    SESSIONS.remove();
+                } else {
+                    SESSIONS.set(outer);
+                }
+            }
+        }
+    }
+
+    public static Session openSession() {
+        Session session = new Session(SESSIONS.get());
+        SESSIONS.set(session);
+        return session;
+    }
+
+    /**
+     * Returns the contents of a file. Within a session on this thread the
+     * first read is kept and shared; outside of one this is the same as read.
+     */
+    public static SourceFile open(String path) throws IOException {
+        Session session = SESSIONS.get();
+        if (session == null) {
+            return read(path);
+        }
+
+        SourceFile sourceFile = session.files.get(path);
+        if (sourceFile == null) {
+            sourceFile = read(path);
+            session.files.put(path, sourceFile);
+        }
+        return sourceFile;
+    }
+
+    /**
+     * Reads a file without caching it. The bytes go straight into an array of
+     * the file's size, which the String is decoded from.
+     */
+    public static SourceFile read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+
+            byte[] bytes = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            // String's own UTF-8 decoder has an ASCII fast path that a CharsetDecoder does not
+            return new SourceFile(path, new String(bytes, 0, buffer.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    public static SourceFile fromBytes(String path, byte[] bytes) {
+        return new SourceFile(path, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    public static SourceFile fromText(String path, String text) {
+        return new SourceFile(path, text);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Parses the text on first use. A failed parse is remembered too, so
+     * every detector that asks again gets the same exception without
+     * parsing the file a second time.
+     */
+    public synchronized CompilationUnit getCompilationUnit() {
+        if (parseProblem != null) {
+            throw parseProblem;
+        }
+        if (compilationUnit == null) {
+            ParseResult<CompilationUnit> result = PARSERS.get().parse(text);
+            if (!result.isSuccessful() || !result.getResult().isPresent()) {
+                parseProblem = new ParseProblemException(result.getProblems());
+                throw parseProblem;
+            }
+            compilationUnit = result.getResult().get();
+        }
+        return compilationUnit;
+    }
+
+    public int getLineCount() {
+        return getLineStarts().length;
+    }
+
+    /**
+     * Returns a line without its terminator. Lines are numbered from 1, the
+     * same as JavaParser positions.
+     */
+    public String getLine(int line) {
+        int[] starts = getLineStarts();
+        if (line < 1 || line > starts.length) {
+            return "";
+        }
+        return text.substring(starts[line - 1], lineEnd(line));
+    }
+
+    public String getSnippet(int startLine, int endLine) {
+        int[] starts = getLineStarts();
+        int first = Math.max(startLine, 1);
+        int last = Math.min(endLine, starts.length);
+        if (first > last) {
+            return "";
+        }
+        return text.substring(starts[first - 1], lineEnd(last));
+    }
+
+    /**
+     * Returns the numbers of the lines that contain the search string, each
+     * line at most once. Matches never span a line break.
+     */
+    public List<Integer> findString(String searchString) {
+        List<Integer> lineNumbers = new ArrayList<>();
+        if (searchString.isEmpty()) {
+            return lineNumbers;
+        }
+
+        int[] starts = getLineStarts();
+        int index = text.indexOf(searchString);
+        while (index >= 0) {
+            int line = lineAt(index);
+            int end = lineEnd(line);
+            if (index + searchString.length() <= end) {
+                lineNumbers.add(line);
+                if (line == starts.length) {
+                    break;
+                }
+                index = text.indexOf(searchString, starts[line]);
+            } else {
+                index = text.indexOf(searchString, index + 1);
+            }
+        }
+        return lineNumbers;
+    }
+
+    private int lineAt(int offset) {
+        int[] starts = getLineStarts();
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    private int lineEnd(int line) {
+        int[] starts = getLineStarts();
+        int end = line < starts.length ? starts[line] : text.length();
+        if (end > starts[line - 1] && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > starts[line - 1] && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    private synchronized int[] getLineStarts() {
+        if (lineStarts == null) {
+            int count = 1;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+                    count++;
+                }
+            }
+
+            int[] starts = new int[count];
+            int line = 1;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+                    starts[line++] = i + 1;
+                }
+            }
+            lineStarts = starts;
+        }
+        return lineStarts;
+    }
+}
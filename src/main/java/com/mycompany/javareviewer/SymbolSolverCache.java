@@ -0,0 +1,152 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.javareviewer;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared type solver for the whole run. Every type name is resolved against
+ * the JDK, the project sources and any jars at most once; later lookups are
+ * answered from a concurrent map. The solver is installed on one parser
+ * configuration that every parser in the process is built from.
+ *
+ * @author Andy
+ */
+public final class SymbolSolverCache {
+    // StaticJavaParser keeps its configuration per thread, so the parsers
+    // share this instance instead
+    private static final ParserConfiguration PARSER_CONFIGURATION = new ParserConfiguration();
+
+    private SymbolSolverCache() {
+    }
+
+    /**
+     * Builds the shared solver for a project directory and installs it on the
+     * shared parser configuration, so every CompilationUnit parsed afterwards,
+     * on any thread, can resolve its types.
+     */
+    public static synchronized TypeSolver configure(File projectDirectory) {
+        CombinedTypeSolver combined = new CombinedTypeSolver();
+        combined.add(new ReflectionTypeSolver());
+
+        for (File sourceRoot : findSourceRoots(projectDirectory)) {
+            combined.add(new JavaParserTypeSolver(sourceRoot));
+        }
+
+        for (File jar : findJars(projectDirectory)) {
+            try {
+                combined.add(new JarTypeSolver(jar));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        TypeSolver shared = new MemoizingTypeSolver(combined);
+        PARSER_CONFIGURATION.setSymbolResolver(new JavaSymbolSolver(shared));
+        return shared;
+    }
+
+    public static ParserConfiguration getParserConfiguration() {
+        return PARSER_CONFIGURATION;
+    }
+
+    private static List<File> findSourceRoots(File directory) {
+        List<File> sourceRoots = new ArrayList<>();
+        collectSourceRoots(directory, sourceRoots);
+        if (sourceRoots.isEmpty()) {
+            sourceRoots.add(directory);
+        }
+        return sourceRoots;
+    }
+
+    private static void collectSourceRoots(File directory, List<File> sourceRoots) {
+        File[] children = directory.listFiles(File::isDirectory);
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            String path = child.getPath().replace('\\', '/');
+            if (path.endsWith("src/main/java") || path.endsWith("src/test/java")) {
+                sourceRoots.add(child);
+            } else if (!child.getName().startsWith(".")) {
+                collectSourceRoots(child, sourceRoots);
+            }
+        }
+    }
+
+    private static List<File> findJars(File directory) {
+        List<File> jars = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return jars;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory() && !file.getName().startsWith(".")) {
+                jars.addAll(findJars(file));
+            } else if (file.getName().endsWith(".jar")) {
+                jars.add(file);
+            }
+        }
+        return jars;
+    }
+
+    /**
+     * Answers repeated lookups from a ConcurrentHashMap. Misses are solved
+     * under a lock because the underlying JavaParser solvers keep their own
+     * unsynchronized state; hits never take the lock.
+     */
+    private static class MemoizingTypeSolver implements TypeSolver {
+        private final ConcurrentHashMap<String, SymbolReference<ResolvedReferenceTypeDeclaration>> cache = new ConcurrentHashMap<>();
+        private final TypeSolver delegate;
+        private TypeSolver parent;
+
+        public MemoizingTypeSolver(TypeSolver delegate) {
+            this.delegate = delegate;
+            delegate.setParent(this);
+        }
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> reference = cache.get(name);
+            if (reference != null) {
+                return reference;
+            }
+
+            synchronized (delegate) {
+                reference = cache.get(name);
+                if (reference == null) {
+                    reference = delegate.tryToSolveType(name);
+                    cache.put(name, reference);
+                }
+            }
+            return reference;
+        }
+    }
+}
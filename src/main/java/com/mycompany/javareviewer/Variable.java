@@ -4,12 +4,241 @@
  */
 package com.mycompany.javareviewer;
 
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.types.ResolvedPrimitiveType;
+import com.github.javaparser.resolution.types.ResolvedType;
+
 /**
+ * A declared variable together with its resolved type. Types are resolved
+ * through the shared {@link SymbolSolverCache}, so {@code var}, imports and
+ * boxed types are classified by what they are rather than how they are spelled.
  *
  * @author Andy
  */
 public class Variable {
+    public enum Kind {
+        NUMERIC, BOOLEAN, STRING, REFERENCE, UNRESOLVED
+    }
+
+    private final String name;
+    private final String className;
+    private final int lineNumber;
+    private final String typeName;
+    private final Kind kind;
+
     public Variable(String name, String className, int lineNumber) {
-        
+        this(name, className, lineNumber, null, Kind.UNRESOLVED);
+    }
+
+    public Variable(String name, String className, int lineNumber, String typeName, Kind kind) {
+        this.name = name;
+        this.className = className;
+        this.lineNumber = lineNumber;
+        this.typeName = typeName;
+        this.kind = kind;
+    }
+
+    /**
+     * Builds a variable from its declarator. The type name is the declared
+     * type, or for var the type the solver inferred.
+     */
+    public static Variable of(VariableDeclarator declarator) {
+        String className = Finding.enclosingName(declarator, TypeDeclaration.class);
+        int lineNumber = declarator.getBegin().map(p -> p.line).orElse(-1);
+        Type type = declarator.getType();
+
+        Kind kind = classifyDeclared(type);
+        if (kind != null) {
+            return new Variable(declarator.getNameAsString(), className, lineNumber, type.asString(), kind);
+        }
+
+        try {
+            ResolvedType resolved = type.resolve();
+            return new Variable(declarator.getNameAsString(), className, lineNumber, resolved.describe(), classify(resolved));
+        } catch (RuntimeException e) {
+            // No solver configured, or the type lives outside the known sources and jars
+            return new Variable(declarator.getNameAsString(), className, lineNumber, type.asString(), Kind.UNRESOLVED);
+        }
+    }
+
+    /**
+     * Classifies a declared type. Only var and shadowed box names go through
+     * the symbol solver; every other type is decided from its syntax by
+     * classifyDeclared.
+     */
+    public static Kind classify(Type type) {
+        Kind kind = classifyDeclared(type);
+        if (kind != null) {
+            return kind;
+        }
+
+        try {
+            return classify(type.resolve());
+        } catch (RuntimeException e) {
+            return Kind.UNRESOLVED;
+        }
+    }
+
+    public static Kind classify(ResolvedType type) {
+        if (type.isPrimitive()) {
+            return classify(type.asPrimitive());
+        }
+        if (type.isReferenceType()) {
+            if (type.asReferenceType().isUnboxable()) {
+                return classify(type.asReferenceType().toUnboxedType().get());
+            }
+            if (type.asReferenceType().getQualifiedName().equals("java.lang.String")) {
+                return Kind.STRING;
+            }
+            return Kind.REFERENCE;
+        }
+        return type.isVoid() ? Kind.UNRESOLVED : Kind.REFERENCE;
+    }
+
+    private static Kind classify(ResolvedPrimitiveType type) {
+        if (type == ResolvedPrimitiveType.BOOLEAN) {
+            return Kind.BOOLEAN;
+        }
+        if (type.in(ResolvedPrimitiveType.BYTE, ResolvedPrimitiveType.SHORT, ResolvedPrimitiveType.INT,
+                ResolvedPrimitiveType.LONG, ResolvedPrimitiveType.FLOAT, ResolvedPrimitiveType.DOUBLE)) {
+            return Kind.NUMERIC;
+        }
+        return Kind.REFERENCE;
+    }
+
+    /**
+     * Classifies a type from its syntax alone: the primitive kind, or the
+     * simple name of a java.lang box type. This runs for every declaration
+     * the detectors visit, so it compares the stored identifiers and never
+     * prints the type to a string. Returns null for var, whose type has to
+     * be inferred, and for a box name that an import or a nearby type
+     * declaration may shadow, which has to be resolved.
+     */
+    public static Kind classifyDeclared(Type type) {
+        if (type.isPrimitiveType()) {
+            switch (type.asPrimitiveType().getType()) {
+                case BOOLEAN:
+                    return Kind.BOOLEAN;
+                case CHAR:
+                    return Kind.REFERENCE;
+                default:
+                    return Kind.NUMERIC;
+            }
+        }
+        if (type.isClassOrInterfaceType()) {
+            ClassOrInterfaceType classType = type.asClassOrInterfaceType();
+            String identifier = classType.getName().getIdentifier();
+            Kind kind = javaLangKind(identifier);
+            if (kind == null) {
+                return Kind.REFERENCE;
+            }
+            if (classType.getScope().isPresent()) {
+                return isInJavaLang(classType.getScope().get()) ? kind : Kind.REFERENCE;
+            }
+            return isShadowed(classType, identifier) ? null : kind;
+        }
+        if (type.isVarType()) {
+            return null;
+        }
+        return type.isVoidType() ? Kind.UNRESOLVED : Kind.REFERENCE;
+    }
+
+    private static Kind javaLangKind(String identifier) {
+        switch (identifier) {
+            case "Byte":
+            case "Short":
+            case "Integer":
+            case "Long":
+            case "Float":
+            case "Double":
+                return Kind.NUMERIC;
+            case "Boolean":
+                return Kind.BOOLEAN;
+            case "String":
+                return Kind.STRING;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isInJavaLang(ClassOrInterfaceType lang) {
+        return lang.getName().getIdentifier().equals("lang") && lang.getScope().isPresent()
+                && lang.getScope().get().getName().getIdentifier().equals("java") && !lang.getScope().get().getScope().isPresent();
+    }
+
+    /**
+     * Whether a simple name may mean something other than the java.lang type:
+     * a single-type import of that name, or an enclosing type, one of its
+     * member types or another type of the file declared with it. Types of the
+     * same package in other files are not seen here.
+     */
+    private static boolean isShadowed(ClassOrInterfaceType type, String identifier) {
+        for (Node node = type.getParentNode().orElse(null); node != null; node = node.getParentNode().orElse(null)) {
+            if (node instanceof TypeDeclaration) {
+                TypeDeclaration<?> declaration = (TypeDeclaration<?>) node;
+                if (declaration.getName().getIdentifier().equals(identifier)) {
+                    return true;
+                }
+                for (BodyDeclaration<?> member : declaration.getMembers()) {
+                    if (member instanceof TypeDeclaration && ((TypeDeclaration<?>) member).getName().getIdentifier().equals(identifier)) {
+                        return true;
+                    }
+                }
+            } else if (node instanceof CompilationUnit) {
+                CompilationUnit cu = (CompilationUnit) node;
+                for (ImportDeclaration importDeclaration : cu.getImports()) {
+                    if (!importDeclaration.isAsterisk() && !importDeclaration.isStatic()
+                            && importDeclaration.getName().getIdentifier().equals(identifier)) {
+                        return true;
+                    }
+                }
+                for (TypeDeclaration<?> declaration : cu.getTypes()) {
+                    if (declaration.getName().getIdentifier().equals(identifier)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isNumeric() {
+        return kind == Kind.NUMERIC;
+    }
+
+    public boolean isBoolean() {
+        return kind == Kind.BOOLEAN;
+    }
+
+    @Override
+    public String toString() {
+        return "Class Name: " + className + ", Variable Name: " + name + ", Type: " + typeName + ", Line Number: " + lineNumber;
     }
 }